@@ -0,0 +1,73 @@
+package com.mbank.benchmark;
+
+import com.mbank.service.BankAccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Money movements end to end through BankAccountService: validation, conditional UPDATE, journal
+// insert and rollup upsert, one database transaction each. With ledger=true the same calls go
+// through the in-memory ledger and its group commit instead; run with -t above 1 to see batching.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AccountBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Bank extends SeededBank {
+
+        // mbank.ledger.in-memory.enabled
+        @Param({"false", "true"})
+        public boolean ledger;
+
+        @Override
+        protected String[] overrides() {
+            return new String[] {"--mbank.ledger.in-memory.enabled=" + ledger};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+        int account;
+        int peer;
+        boolean forward;
+
+        @Setup(Level.Trial)
+        public void claim(Bank bank) {
+            account = bank.claimAccount();
+            peer = bank.claimAccount();
+        }
+    }
+
+    @Benchmark
+    public BankAccountService.BalanceChange deposit(Bank bank, Accounts accounts) {
+        return bank.accountService.deposit(accounts.account, 1_00);
+    }
+
+    @Benchmark
+    public BankAccountService.BalanceChange withdraw(Bank bank, Accounts accounts) {
+        return bank.accountService.withdraw(accounts.account, 1_00);
+    }
+
+    // Alternates direction so both rows take turns being locked first
+    @Benchmark
+    public BankAccountService.TransferResult transfer(Bank bank, Accounts accounts) {
+        accounts.forward = !accounts.forward;
+        return accounts.forward
+                ? bank.accountService.transfer(accounts.account, accounts.peer, 1_00, null)
+                : bank.accountService.transfer(accounts.peer, accounts.account, 1_00, null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.mbank.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The recipient lookups on the transfer path, with the account metadata cache on and off. For the
+// whole transfer page run LoadTest --mix=transfer=100 with --mbank.account-cache.enabled=true/false.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AccountMetadataBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Bank extends SeededBank {
+
+        // mbank.account-cache.enabled
+        @Param({"false", "true"})
+        public boolean cache;
+
+        @Override
+        protected String[] overrides() {
+            return new String[] {"--mbank.account-cache.enabled=" + cache};
+        }
+    }
+
+    // Cycles through every seeded account, which all fit in the default cache size
+    @State(Scope.Thread)
+    public static class Recipient {
+        int next;
+
+        @Setup(Level.Trial)
+        public void claim(Bank bank) {
+            next = bank.claimAccount();
+        }
+
+        int next() {
+            next = next % SeededBank.ACCOUNTS + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public boolean accountExists(Bank bank, Recipient recipient) {
+        return bank.accountService.accountExists(recipient.next());
+    }
+
+    @Benchmark
+    public String getAccountHolderName(Bank bank, Recipient recipient) {
+        return bank.accountService.getAccountHolderName(recipient.next());
+    }
+}
@@ -0,0 +1,99 @@
+package com.mbank.benchmark;
+
+import com.mbank.MbankApplication;
+import com.mbank.service.RollupBackfillJob;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application booted against a throwaway PostgreSQL started from the embedded binaries, so
+ * benchmarks and load tests need neither a database server nor network access. Flyway migrates
+ * the empty database exactly as in production.
+ *
+ * Extra {@code --name=value} arguments override application.properties.
+ */
+public final class EmbeddedBank implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedBank(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    public static EmbeddedBank start(WebApplicationType webApplicationType, String... overrides) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "200")
+                .start();
+        try {
+            List<String> args = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.com.mbank=WARN",
+                    "--logging.level.org.springframework=WARN",
+                    "--logging.level.org.hibernate=WARN",
+                    "--logging.level.org.flywaydb=WARN",
+                    "--logging.level.io.zonky=WARN"));
+            args.addAll(List.of(overrides));
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(MbankApplication.class)
+                    .web(webApplicationType)
+                    .run(args.toArray(String[]::new));
+            return new EmbeddedBank(postgres, context);
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates accounts {@code 1..accounts}, each holding {@code openingBalance} cents and able to
+     * log in as {@code bench<n>@bench.test} / {@code secret}, with {@code historyPerAccount} journal
+     * rows spread over the past year. Rollups are backfilled and statistics refreshed afterwards,
+     * so queries plan as they would against a database that grew to this size.
+     */
+    public void seed(int accounts, int historyPerAccount, long openingBalance) {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO accounts (account_number, account_holder, balance, email, password, created_at) " +
+                "SELECT i, 'Bench ' || i, ?, 'bench' || i || '@bench.test', 'secret', now() " +
+                "FROM generate_series(1, ?) i", openingBalance, accounts);
+        jdbc.update("INSERT INTO transactions (id, account_number, transaction_type, amount, fee, balance_after, " +
+                "transaction_date, transaction_id) " +
+                "SELECT -i, 1 + i % ?, (ARRAY['DEPOSIT', 'WITHDRAWAL', 'TRANSFER_DEBIT', 'TRANSFER_CREDIT'])[1 + i % 4], " +
+                "CASE WHEN i % 4 IN (1, 2) THEN -2500 ELSE 2500 END, CASE WHEN i % 20 = 2 THEN 1000 ELSE 0 END, ?, " +
+                "now() - (i % 365) * interval '1 day' - (i % 86400) * interval '1 second', 'SEED' || i " +
+                "FROM generate_series(1, ?) i", accounts, openingBalance, accounts * historyPerAccount);
+        bean(RollupBackfillJob.class).backfill();
+        jdbc.execute("ANALYZE");
+    }
+
+    public static String email(int accountNumber) {
+        return "bench" + accountNumber + "@bench.test";
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            context.close();
+        } finally {
+            postgres.close();
+        }
+    }
+}
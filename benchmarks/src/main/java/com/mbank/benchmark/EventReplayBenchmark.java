@@ -0,0 +1,99 @@
+package com.mbank.benchmark;
+
+import com.mbank.service.LedgerSnapshotService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Event-sourced balance replays (LedgerSnapshotService.balanceAt) over 1000 accounts with
+// history events each. With snapshots=true every account has a snapshot each SNAPSHOT_INTERVAL
+// events, as the snapshotter leaves them, so a replay reads at most that many rows; without,
+// every replay sums the account's journal from the first event.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventReplayBenchmark {
+
+    static final int SNAPSHOT_INTERVAL = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Bank extends SeededBank {
+
+        // Events per account: 1M and 10M events in total
+        @Param({"1000", "10000"})
+        public int history;
+
+        @Param({"false", "true"})
+        public boolean snapshots;
+
+        LedgerSnapshotService snapshotService;
+
+        @Override
+        protected String[] overrides() {
+            // No start-up rebuild and no background snapshots while measuring
+            return new String[] {
+                    "--mbank.ledger.event-sourced.enabled=true",
+                    "--mbank.ledger.event-sourced.rebuild-on-startup=off",
+                    "--mbank.ledger.snapshots.interval=" + SNAPSHOT_INTERVAL,
+                    "--mbank.ledger.snapshots.check-interval-ms=3600000"};
+        }
+
+        @Override
+        protected int historyPerAccount() {
+            return history;
+        }
+
+        @Override
+        protected void seeded() {
+            snapshotService = bank.bean(LedgerSnapshotService.class);
+            if (snapshots) {
+                JdbcTemplate jdbc = bank.bean(JdbcTemplate.class);
+                jdbc.update("INSERT INTO account_snapshots (account_number, last_row_id, last_transaction_date, " +
+                        "balance, event_count, created_at) " +
+                        "SELECT account_number, id, transaction_date, balance, n, now() FROM (" +
+                        "SELECT account_number, id, transaction_date, " +
+                        "(SUM(amount - fee) OVER w)::bigint AS balance, ROW_NUMBER() OVER w AS n " +
+                        "FROM transactions WINDOW w AS (PARTITION BY account_number ORDER BY transaction_date, id)" +
+                        ") journal WHERE n % ? = 0", SNAPSHOT_INTERVAL);
+                jdbc.execute("ANALYZE account_snapshots");
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Account {
+        int account;
+        LocalDateTime sixMonthsAgo;
+
+        @Setup(Level.Trial)
+        public void claim(Bank bank) {
+            account = bank.claimAccount();
+            sixMonthsAgo = LocalDateTime.now().minusMonths(6);
+        }
+    }
+
+    @Benchmark
+    public long balanceNow(Bank bank, Account account) {
+        return bank.snapshotService.balanceAt(account.account, LocalDateTime.now());
+    }
+
+    @Benchmark
+    public long balanceSixMonthsAgo(Bank bank, Account account) {
+        return bank.snapshotService.balanceAt(account.account, account.sixMonthsAgo);
+    }
+}
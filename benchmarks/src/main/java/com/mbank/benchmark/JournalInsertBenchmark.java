@@ -0,0 +1,66 @@
+package com.mbank.benchmark;
+
+import com.mbank.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Journal writes through TransactionService.recordTransactions: rows=2 is a transfer's two legs,
+// rows=100 a bulk run. batching=false turns off the Hibernate JDBC batch and the driver's insert
+// rewrite, so every row is its own INSERT round trip as before the sequence-backed IDs.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JournalInsertBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Bank extends SeededBank {
+
+        @Param({"false", "true"})
+        public boolean batching;
+
+        @Override
+        protected String[] overrides() {
+            return new String[] {
+                    "--spring.jpa.properties.hibernate.jdbc.batch_size=" + (batching ? 50 : 1),
+                    "--spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=" + batching};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rows {
+        @Param({"2", "100"})
+        int rows;
+
+        int account;
+
+        @Setup(Level.Trial)
+        public void claim(Bank bank) {
+            account = bank.claimAccount();
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> recordTransactions(Bank bank, Rows rows) {
+        List<Transaction> journal = new ArrayList<>(rows.rows);
+        for (int i = 0; i < rows.rows; i++) {
+            journal.add(bank.transactionService.newTransaction(rows.account, "DEPOSIT", 1_00, null, "Benchmark"));
+        }
+        return bank.transactionService.recordTransactions(journal);
+    }
+}
@@ -0,0 +1,121 @@
+package com.mbank.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// A statement summary folded over 1M journal rows in memory, no database: rows holding boxed
+// Double, as the entities did before long cents (summed into double, as the summary was), against
+// rows holding long cents. The per-row arithmetic mirrors TransactionService's summary. For the
+// database-backed summary over a 1M-row journal run TransactionSummaryBenchmark -p history=1000.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneySummaryBenchmark {
+
+    static final int ROWS = 1_000_000;
+
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER_DEBIT", "TRANSFER_CREDIT"};
+
+    static final class DoubleRow {
+        final String type;
+        final Double amount;
+        final Double fee;
+
+        DoubleRow(String type, Double amount, Double fee) {
+            this.type = type;
+            this.amount = amount;
+            this.fee = fee;
+        }
+    }
+
+    static final class CentsRow {
+        final String type;
+        final long amount;
+        final long fee;
+
+        CentsRow(String type, long amount, long fee) {
+            this.type = type;
+            this.amount = amount;
+            this.fee = fee;
+        }
+    }
+
+    private List<DoubleRow> doubleRows;
+    private List<CentsRow> centsRows;
+
+    @Setup(Level.Trial)
+    public void rows() {
+        SplittableRandom random = new SplittableRandom(42);
+        doubleRows = new ArrayList<>(ROWS);
+        centsRows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String type = TYPES[i % TYPES.length];
+            long cents = random.nextLong(1_00, 1500_00);
+            long amount = type.equals("WITHDRAWAL") || type.equals("TRANSFER_DEBIT") ? -cents : cents;
+            long fee = type.equals("TRANSFER_DEBIT") && cents > 1000_00 ? 10_00 : 0;
+            doubleRows.add(new DoubleRow(type, amount / 100.0, fee / 100.0));
+            centsRows.add(new CentsRow(type, amount, fee));
+        }
+    }
+
+    @Benchmark
+    public double[] summarizeDoubles() {
+        double deposits = 0;
+        double withdrawals = 0;
+        double transfersOut = 0;
+        double transfersIn = 0;
+        double fees = 0;
+        for (DoubleRow row : doubleRows) {
+            if (row.type.equals("DEPOSIT")) {
+                deposits += row.amount;
+            } else if (row.type.equals("WITHDRAWAL")) {
+                withdrawals += -row.amount;
+            } else if (row.type.equals("TRANSFER_DEBIT")) {
+                transfersOut += -row.amount;
+            } else if (row.type.equals("TRANSFER_CREDIT")) {
+                transfersIn += row.amount;
+            }
+            fees += row.fee;
+        }
+        return new double[] {deposits, withdrawals, transfersOut, transfersIn, fees};
+    }
+
+    @Benchmark
+    public long[] summarizeCents() {
+        long deposits = 0;
+        long withdrawals = 0;
+        long transfersOut = 0;
+        long transfersIn = 0;
+        long fees = 0;
+        for (CentsRow row : centsRows) {
+            if (row.type.equals("DEPOSIT")) {
+                deposits += row.amount;
+            } else if (row.type.equals("WITHDRAWAL")) {
+                withdrawals += -row.amount;
+            } else if (row.type.equals("TRANSFER_DEBIT")) {
+                transfersOut += -row.amount;
+            } else if (row.type.equals("TRANSFER_CREDIT")) {
+                transfersIn += row.amount;
+            }
+            fees += row.fee;
+        }
+        return new long[] {deposits, withdrawals, transfersOut, transfersIn, fees};
+    }
+}
@@ -0,0 +1,65 @@
+package com.mbank.benchmark;
+
+import com.mbank.service.BankAccountService;
+import com.mbank.service.TransactionService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One application and database per benchmark fork, seeded with {@value #ACCOUNTS} accounts that
+ * each have a year of journal history ({@value #HISTORY_PER_ACCOUNT} rows unless a subclass asks
+ * for more) and daily rollups. Every account starts with enough money that no benchmark runs it dry.
+ */
+@State(Scope.Benchmark)
+public class SeededBank {
+
+    public static final int ACCOUNTS = 1_000;
+    public static final int HISTORY_PER_ACCOUNT = 200;
+    public static final long OPENING_BALANCE = 1_000_000_000_00L;
+
+    private final AtomicInteger nextAccount = new AtomicInteger();
+
+    public EmbeddedBank bank;
+    public BankAccountService accountService;
+    public TransactionService transactionService;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        bank = EmbeddedBank.start(WebApplicationType.NONE, overrides());
+        accountService = bank.bean(BankAccountService.class);
+        transactionService = bank.bean(TransactionService.class);
+
+        bank.seed(ACCOUNTS, historyPerAccount(), OPENING_BALANCE);
+        seeded();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        bank.close();
+    }
+
+    // Application properties for this fork; subclasses add @Param-driven ones
+    protected String[] overrides() {
+        return new String[0];
+    }
+
+    protected int historyPerAccount() {
+        return HISTORY_PER_ACCOUNT;
+    }
+
+    // Runs once the seed is in, for data a benchmark needs on top of it
+    protected void seeded() {
+    }
+
+    // Hands each benchmark thread its own account, so threads measure the code path, not row locks
+    public int claimAccount() {
+        return 1 + nextAccount.getAndIncrement() % ACCOUNTS;
+    }
+}
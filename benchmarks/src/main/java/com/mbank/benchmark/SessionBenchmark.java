@@ -0,0 +1,102 @@
+package com.mbank.benchmark;
+
+import com.mbank.model.SessionPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Session attributes through the converters Spring Session JDBC uses, one blob per attribute, as
+// every request on another machine pays for them. No database. "legacy" is what login used to
+// store: the whole account (mirrored here, the entity was never Serializable) plus accountNumber.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+
+    // Field for field the BankAccount entity as it was kept in the session before the principal
+    static final class LegacySessionAccount implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final Integer accountNumber;
+        final String accountHolder;
+        final Double balance;
+        final String email;
+        final String password;
+        final LocalDateTime createdAt;
+
+        LegacySessionAccount(Integer accountNumber, String accountHolder, Double balance, String email,
+                             String password, LocalDateTime createdAt) {
+            this.accountNumber = accountNumber;
+            this.accountHolder = accountHolder;
+            this.balance = balance;
+            this.email = email;
+            this.password = password;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer = new DeserializingConverter();
+
+    private SessionPrincipal principal;
+    private LegacySessionAccount legacyAccount;
+    private Integer legacyAccountNumber;
+
+    private byte[] principalBlob;
+    private byte[] legacyAccountBlob;
+    private byte[] legacyAccountNumberBlob;
+
+    @Setup(Level.Trial)
+    public void serialize() {
+        principal = new SessionPrincipal(1_000_042, "Thandiwe Mokoena");
+        legacyAccount = new LegacySessionAccount(1_000_042, "Thandiwe Mokoena", 12_345.67,
+                "thandiwe.mokoena@example.co.za", "correct-horse-battery", LocalDateTime.now());
+        legacyAccountNumber = 1_000_042;
+
+        principalBlob = serializer.convert(principal);
+        legacyAccountBlob = serializer.convert(legacyAccount);
+        legacyAccountNumberBlob = serializer.convert(legacyAccountNumber);
+        System.out.printf("%nSession attribute bytes: principal %d; legacy account %d + accountNumber %d = %d%n",
+                principalBlob.length, legacyAccountBlob.length, legacyAccountNumberBlob.length,
+                legacyAccountBlob.length + legacyAccountNumberBlob.length);
+    }
+
+    @Benchmark
+    public Object deserializePrincipal() {
+        return deserializer.convert(principalBlob);
+    }
+
+    @Benchmark
+    public Object deserializeLegacy() {
+        deserializer.convert(legacyAccountNumberBlob);
+        return deserializer.convert(legacyAccountBlob);
+    }
+
+    @Benchmark
+    public byte[] serializePrincipal() {
+        return serializer.convert(principal);
+    }
+
+    @Benchmark
+    public byte[] serializeLegacy() {
+        serializer.convert(legacyAccountNumber);
+        return serializer.convert(legacyAccount);
+    }
+}
@@ -0,0 +1,146 @@
+package com.mbank.benchmark;
+
+import com.mbank.model.StatementRow;
+import com.mbank.model.Transaction;
+import com.mbank.service.TransactionService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The statement page behind StatementController.viewStatement: the keyset query with its
+// StatementRow projection, and on its own the per-row mapping and the fields the template reads.
+// legacyPage is the same page as it was served before the projection, for allocation (-prof gc):
+// managed Transaction entities in a read-write transaction, copied into a HashMap per row.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StatementBenchmark {
+
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER_DEBIT", "TRANSFER_CREDIT"};
+
+    @State(Scope.Thread)
+    public static class Statement {
+        int account;
+        LocalDateTime start;
+        LocalDateTime end;
+
+        @Setup(Level.Trial)
+        public void claim(SeededBank bank) {
+            account = bank.claimAccount();
+            start = LocalDate.now().minusYears(1).atStartOfDay();
+            end = LocalDate.now().atTime(23, 59, 59);
+        }
+    }
+
+    // What the statement page used before StatementRow
+    @State(Scope.Thread)
+    public static class Legacy {
+        EntityManager entityManager;
+        TransactionTemplate transactionTemplate;
+        final DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
+
+        @Setup(Level.Trial)
+        public void connect(SeededBank seeded) {
+            entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                    seeded.bank.bean(EntityManagerFactory.class));
+            transactionTemplate = new TransactionTemplate(seeded.bank.bean(PlatformTransactionManager.class));
+        }
+    }
+
+    // One page of raw column values, as the JDBC result set hands them to the projection
+    @State(Scope.Thread)
+    public static class Columns {
+        final Object[][] rows = new Object[TransactionService.STATEMENT_PAGE_SIZE + 1][];
+
+        @Setup(Level.Trial)
+        public void fill() {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < rows.length; i++) {
+                String type = TYPES[i % TYPES.length];
+                rows[i] = new Object[]{(long) i, now.minusHours(i), type, i % 2 == 0 ? 2500L : -2500L,
+                        i % 20 == 2 ? 1000L : 0L, type.startsWith("TRANSFER_") ? "10000100" : null,
+                        "Statement line " + i, "DEP" + (1_000_000L + i)};
+            }
+        }
+    }
+
+    @Benchmark
+    public TransactionService.StatementPage page(SeededBank bank, Statement statement) {
+        return bank.transactionService.getStatementPage(
+                statement.account, statement.start, statement.end, "ALL", null, null);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyPage(Statement statement, Legacy legacy) {
+        List<Transaction> page = legacy.transactionTemplate.execute(status -> legacy.entityManager
+                .createQuery("SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+                        "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+                        "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+                        "ORDER BY t.transactionDate DESC, t.id DESC", Transaction.class)
+                .setParameter("accountNumber", statement.account)
+                .setParameter("startDate", statement.start)
+                .setParameter("endDate", statement.end)
+                .setParameter("cursorDate", statement.end)
+                .setParameter("cursorId", Long.MAX_VALUE)
+                .setMaxResults(TransactionService.STATEMENT_PAGE_SIZE + 1)
+                .getResultList());
+
+        List<Map<String, Object>> transactions = new ArrayList<>();
+        for (Transaction tx : page.subList(0, Math.min(page.size(), TransactionService.STATEMENT_PAGE_SIZE))) {
+            Map<String, Object> transaction = new HashMap<>();
+            String dbType = tx.getTransactionType();
+            transaction.put("type", dbType.startsWith("TRANSFER_") ? "TRANSFER" : dbType);
+            transaction.put("amount", tx.getAmount());
+            transaction.put("toAccount", tx.getToAccount());
+            transaction.put("description", tx.getDescription());
+            transaction.put("fee", tx.getFee());
+            transaction.put("date", tx.getTransactionDate());
+            transaction.put("transactionId", tx.getTransactionId());
+            transaction.put("formattedDate", tx.getTransactionDate().format(legacy.displayFormatter));
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    @Benchmark
+    public void mapRows(Columns columns, Blackhole blackhole) {
+        List<StatementRow> page = new ArrayList<>(columns.rows.length);
+        for (Object[] c : columns.rows) {
+            page.add(new StatementRow((Long) c[0], (LocalDateTime) c[1], (String) c[2], (Long) c[3], (Long) c[4],
+                    (String) c[5], (String) c[6], (String) c[7]));
+        }
+        for (StatementRow row : page) {
+            blackhole.consume(row.getFormattedDate());
+            blackhole.consume(row.getType());
+            blackhole.consume(row.getAmount());
+            blackhole.consume(row.getFee());
+            blackhole.consume(row.getDescription());
+            blackhole.consume(row.getTransactionId());
+        }
+    }
+}
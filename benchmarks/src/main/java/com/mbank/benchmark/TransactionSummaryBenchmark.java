@@ -0,0 +1,68 @@
+package com.mbank.benchmark;
+
+import com.mbank.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Statement summaries over a seeded year of history: whole days come from the rollups, the partial
+// days at either edge from the journal. history=1000 gives a 1M-row journal.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionSummaryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Bank extends SeededBank {
+
+        // Journal rows per account
+        @Param({"200", "1000"})
+        public int history;
+
+        @Override
+        protected int historyPerAccount() {
+            return history;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Range {
+        int account;
+        LocalDateTime start;
+        LocalDateTime end;
+
+        @Setup(Level.Trial)
+        public void claim(Bank bank) {
+            account = bank.claimAccount();
+            // Mid-day edges, like a statement filtered from a timestamp, so all three queries run
+            start = LocalDate.now().minusDays(90).atTime(10, 30);
+            end = LocalDateTime.now();
+        }
+    }
+
+    @Benchmark
+    public TransactionService.TransactionSummary ninetyDays(Bank bank, Range range) {
+        return bank.transactionService.getTransactionSummary(range.account, range.start, range.end);
+    }
+
+    @Benchmark
+    public TransactionService.TransactionSummary ninetyDaysTransfersOnly(Bank bank, Range range) {
+        return bank.transactionService.getTransactionSummary(range.account, range.start, range.end,
+                TransactionService.statementTypes("TRANSFER"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.mbank.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The pages a logged-in customer uses, issued the way the browser forms issue them. Each money
+ * movement carries a fresh idempotency key, like a freshly rendered form.
+ */
+enum Endpoint {
+
+    DEPOSIT {
+        @Override
+        HttpRequest.Builder request(URI base, int account, int peer) {
+            return post(base.resolve("/deposit"), "amount=" + amount() + "&idempotencyKey=" + UUID.randomUUID());
+        }
+    },
+    WITHDRAW {
+        @Override
+        HttpRequest.Builder request(URI base, int account, int peer) {
+            return post(base.resolve("/withdraw"), "amount=" + amount() + "&idempotencyKey=" + UUID.randomUUID());
+        }
+    },
+    TRANSFER {
+        @Override
+        HttpRequest.Builder request(URI base, int account, int peer) {
+            return post(base.resolve("/transfer"), "toAccount=" + peer + "&amount=" + amount()
+                    + "&description=" + URLEncoder.encode("Load test", StandardCharsets.UTF_8)
+                    + "&idempotencyKey=" + UUID.randomUUID());
+        }
+    },
+    STATEMENT {
+        @Override
+        HttpRequest.Builder request(URI base, int account, int peer) {
+            return HttpRequest.newBuilder(base.resolve("/statement")).GET();
+        }
+
+        @Override
+        boolean succeeded(int status, String body) {
+            return status == 200;
+        }
+    },
+    DASHBOARD {
+        @Override
+        HttpRequest.Builder request(URI base, int account, int peer) {
+            return HttpRequest.newBuilder(base.resolve("/dashboard")).GET();
+        }
+
+        @Override
+        boolean succeeded(int status, String body) {
+            return status == 200;
+        }
+    };
+
+    abstract HttpRequest.Builder request(URI base, int account, int peer);
+
+    // Rejected movements re-render the form with a 200, so only the outcome page counts as success
+    boolean succeeded(int status, String body) {
+        return status == 200 && body.contains("outcome-container success");
+    }
+
+    String path() {
+        return "/" + name().toLowerCase();
+    }
+
+    static Endpoint parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    // R1.00 to R1500.00, so some transfers pay the fee
+    private static String amount() {
+        return ThreadLocalRandom.current().nextInt(1_00, 1500_00) / 100 + ".00";
+    }
+
+    private static HttpRequest.Builder post(URI uri, String form) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+    }
+}
@@ -0,0 +1,70 @@
+package com.mbank.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Response times and outcomes of one endpoint, recorded by a single worker thread and merged into
+ * the totals once the run is over.
+ */
+final class Latencies {
+
+    private long[] nanos = new long[1024];
+    private int count;
+    private long errors;
+    private long busy;
+
+    void record(long elapsedNanos) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = elapsedNanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    // 503 from the connection bulkhead, kept apart from real failures
+    void recordBusy() {
+        busy++;
+    }
+
+    void addAll(Latencies other) {
+        if (count + other.count > nanos.length) {
+            nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, count + other.count));
+        }
+        System.arraycopy(other.nanos, 0, nanos, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        busy += other.busy;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    long busy() {
+        return busy;
+    }
+
+    /** Nearest-rank percentile in milliseconds; call {@link #sort()} first. */
+    double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return nanos[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+
+    double maxMillis() {
+        return count == 0 ? 0 : nanos[count - 1] / 1_000_000.0;
+    }
+
+    void sort() {
+        Arrays.sort(nanos, 0, count);
+    }
+}
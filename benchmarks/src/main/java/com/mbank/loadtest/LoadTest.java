@@ -0,0 +1,381 @@
+package com.mbank.loadtest;
+
+import com.mbank.benchmark.EmbeddedBank;
+import com.mbank.config.ConnectionBulkheadFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the whole application (Tomcat, sessions, bulkhead, templates) against an embedded
+ * PostgreSQL on a random local port, logs in a population of synthetic customers and replays a
+ * weighted mix of their pages from a fixed number of concurrent clients. Needs no network access
+ * beyond loopback.
+ *
+ * <p>Reports, for the measured window after the warm-up: throughput and p50/p95/p99/max response
+ * time per endpoint, failed and busy (503) responses per endpoint, and how long requests waited
+ * for a pooled connection (Hikari's acquire timer, pending threads and acquire timeouts) and how
+ * often the connection bulkhead in front of the pool was full.
+ *
+ * <p>Options, all {@code --name=value}, with defaults:
+ * <pre>
+ *   --users=500            customers to seed and log in
+ *   --history=50           journal rows seeded per customer
+ *   --clients=32           concurrent clients, each with one request in flight
+ *   --warmup=15            seconds run before measuring
+ *   --duration=60          seconds measured
+ *   --think-ms=0           pause between a client's requests
+ *   --mix=deposit=30,withdraw=20,transfer=20,statement=15,dashboard=15
+ * </pre>
+ * Any other {@code --name=value} overrides application.properties, e.g.
+ * {@code --spring.datasource.hikari.maximum-pool-size=5}, {@code --mbank.bulkhead.enabled=false}
+ * or {@code --spring.threads.virtual.enabled=true} (Java 21 or later; refused on older JVMs).
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "users", "500",
+            "history", "50",
+            "clients", "32",
+            "warmup", "15",
+            "duration", "60",
+            "think-ms", "0",
+            "mix", "deposit=30,withdraw=20,transfer=20,statement=15,dashboard=15");
+
+    private static final long OPENING_BALANCE = 1_000_000_000_00L;
+
+    private final Map<String, String> options;
+    private final Map<Endpoint, Integer> mix;
+    private final int totalWeight;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private URI base;
+    private String[] sessions;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.mix = parseMix(options.get("mix"));
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> overrides = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (name != null && DEFAULTS.containsKey(name)) {
+                options.put(name, arg.substring(eq + 1));
+            } else {
+                overrides.add(arg);
+            }
+        }
+        overrides.add(0, "--server.port=0");
+        new LoadTest(options).run(overrides.toArray(String[]::new));
+    }
+
+    private void run(String[] overrides) throws Exception {
+        int users = intOption("users");
+        if (users < 2) {
+            throw new IllegalArgumentException("Transfers need at least two customers, got --users=" + users);
+        }
+        try (EmbeddedBank bank = EmbeddedBank.start(WebApplicationType.SERVLET, overrides)) {
+            String threads = requestThreads(bank);
+            bank.seed(users, intOption("history"), OPENING_BALANCE);
+            base = URI.create("http://localhost:" + bank.context().getEnvironment().getProperty("local.server.port"));
+            MeterRegistry registry = bank.bean(MeterRegistry.class);
+            ConnectionBulkheadFilter bulkhead = bulkhead(bank);
+
+            System.out.printf("Seeded %d customers; %s; %s request threads%n", users, options, threads);
+            logIn(users);
+
+            ExecutorService clients = Executors.newFixedThreadPool(intOption("clients"));
+            try {
+                long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(intOption("warmup"));
+                long measureEnd = warmupEnd + TimeUnit.SECONDS.toNanos(intOption("duration"));
+
+                List<Future<Map<Endpoint, Latencies>>> results = new ArrayList<>();
+                for (int i = 0; i < intOption("clients"); i++) {
+                    results.add(clients.submit(() -> replay(warmupEnd, measureEnd)));
+                }
+
+                sleepUntil(warmupEnd);
+                PoolSnapshot before = PoolSnapshot.take(registry);
+                long maxPending = 0;
+                int samples = 0;
+                int saturated = 0;
+                while (System.nanoTime() < measureEnd) {
+                    maxPending = Math.max(maxPending, PoolSnapshot.pending(registry));
+                    samples++;
+                    if (bulkhead != null && bulkhead.availablePermits() == 0) {
+                        saturated++;
+                    }
+                    sleepUntil(Math.min(measureEnd, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100)));
+                }
+                PoolSnapshot after = PoolSnapshot.take(registry);
+
+                Map<Endpoint, Latencies> totals = new EnumMap<>(Endpoint.class);
+                for (Future<Map<Endpoint, Latencies>> result : results) {
+                    result.get().forEach((endpoint, latencies) ->
+                            totals.computeIfAbsent(endpoint, e -> new Latencies()).addAll(latencies));
+                }
+                report(totals, intOption("duration"));
+                reportPool(before, after, maxPending);
+                if (bulkhead != null) {
+                    // Requests queue for a bulkhead permit before they ever reach the pool
+                    System.out.printf("Bulkhead: every permit in use in %d%% of samples%n",
+                            samples == 0 ? 0 : 100 * saturated / samples);
+                }
+            } finally {
+                clients.shutdownNow();
+            }
+        }
+    }
+
+    // Spring Boot only switches Tomcat to virtual threads on Java 21+ and otherwise ignores the property,
+    // so a platform/virtual comparison on an older JVM would measure platform threads twice
+    private static String requestThreads(EmbeddedBank bank) {
+        Environment environment = bank.context().getEnvironment();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return "virtual";
+        }
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("spring.threads.virtual.enabled needs Java 21 or later; this JVM is "
+                    + Runtime.version().feature());
+        }
+        return "platform";
+    }
+
+    // Every customer gets its own session up front, the way a day's users are already signed in
+    private void logIn(int users) throws Exception {
+        sessions = new String[users + 1];
+        Latencies logins = new Latencies();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(intOption("clients"));
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (int account = 1; account <= users; account++) {
+                int customer = account;
+                pending.add(pool.submit(() -> {
+                    sessions[customer] = logIn(customer, logins);
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        synchronized (logins) {
+            logins.sort();
+            System.out.printf("Logged in %d customers in %.1fs (%d busy retries): p50 %.1fms, p95 %.1fms, p99 %.1fms%n%n",
+                    users, seconds, logins.busy(), logins.percentileMillis(50), logins.percentileMillis(95),
+                    logins.percentileMillis(99));
+        }
+    }
+
+    private String logIn(int account, Latencies logins) throws IOException, InterruptedException {
+        String form = "email=" + URLEncoder.encode(EmbeddedBank.email(account), StandardCharsets.UTF_8)
+                + "&password=secret";
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        HttpResponse<Void> response;
+        while (true) {
+            long start = System.nanoTime();
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            synchronized (logins) {
+                logins.record(System.nanoTime() - start);
+                if (response.statusCode() != 503) {
+                    break;
+                }
+                // Turned away by the bulkhead while everyone signs in at once; retry like a person would
+                logins.recordBusy();
+            }
+            Thread.sleep(100);
+        }
+        String location = response.headers().firstValue("Location").orElse("");
+        String cookie = response.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("JSESSIONID="))
+                .map(c -> c.substring(0, c.indexOf(';') > 0 ? c.indexOf(';') : c.length()))
+                .findFirst().orElse(null);
+        // A brand-new session's redirect carries ;jsessionid= as well as the cookie
+        if (response.statusCode() != 302 || !location.contains("/dashboard") || cookie == null) {
+            throw new IllegalStateException("Login failed for account " + account + ": HTTP " + response.statusCode());
+        }
+        return cookie;
+    }
+
+    private Map<Endpoint, Latencies> replay(long warmupEnd, long measureEnd) throws InterruptedException {
+        Map<Endpoint, Latencies> recorded = new EnumMap<>(Endpoint.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long thinkMillis = intOption("think-ms");
+        int users = sessions.length - 1;
+
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= measureEnd) {
+                return recorded;
+            }
+            Endpoint endpoint = pick(random.nextInt(totalWeight));
+            int account = 1 + random.nextInt(users);
+            int peer = 1 + (account + random.nextInt(users - 1)) % users;
+            HttpRequest request = endpoint.request(base, account, peer)
+                    .header("Cookie", sessions[account])
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+
+            // Requests started during the warm-up are sent but not counted
+            Latencies latencies = start >= warmupEnd ? recorded.computeIfAbsent(endpoint, e -> new Latencies()) : null;
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                long elapsed = System.nanoTime() - start;
+                if (latencies != null) {
+                    latencies.record(elapsed);
+                    if (response.statusCode() == 503) {
+                        latencies.recordBusy();
+                    } else if (!endpoint.succeeded(response.statusCode(), response.body())) {
+                        latencies.recordError();
+                    }
+                }
+            } catch (IOException e) {
+                if (latencies != null) {
+                    latencies.recordError();
+                }
+            }
+            if (thinkMillis > 0) {
+                Thread.sleep(thinkMillis);
+            }
+        }
+    }
+
+    // Null when the bulkhead is disabled
+    @SuppressWarnings("rawtypes")
+    private static ConnectionBulkheadFilter bulkhead(EmbeddedBank bank) {
+        for (FilterRegistrationBean registration : bank.context().getBeansOfType(FilterRegistrationBean.class).values()) {
+            if (registration.isEnabled() && registration.getFilter() instanceof ConnectionBulkheadFilter filter) {
+                return filter;
+            }
+        }
+        return null;
+    }
+
+    private Endpoint pick(int ticket) {
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Ticket beyond the mix weights");
+    }
+
+    private static void report(Map<Endpoint, Latencies> totals, int seconds) {
+        System.out.printf("%-12s %9s %9s %9s %9s %9s %9s %8s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors", "busy");
+        long requests = 0;
+        long errors = 0;
+        long busy = 0;
+        for (Map.Entry<Endpoint, Latencies> entry : totals.entrySet()) {
+            Latencies latencies = entry.getValue();
+            latencies.sort();
+            System.out.printf("%-12s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %8d %8d%n",
+                    entry.getKey().path(), latencies.count(), (double) latencies.count() / seconds,
+                    latencies.percentileMillis(50), latencies.percentileMillis(95), latencies.percentileMillis(99),
+                    latencies.maxMillis(), latencies.errors(), latencies.busy());
+            requests += latencies.count();
+            errors += latencies.errors();
+            busy += latencies.busy();
+        }
+        System.out.printf("%-12s %9d %9.1f %49s %8d %8d%n%n", "total", requests, (double) requests / seconds, "",
+                errors, busy);
+    }
+
+    private static void reportPool(PoolSnapshot before, PoolSnapshot after, long maxPending) {
+        long acquisitions = after.acquisitions - before.acquisitions;
+        double waitMillis = after.acquireMillis - before.acquireMillis;
+        System.out.printf("Connection pool: %d acquisitions, mean wait %.2fms, max wait %.1fms, "
+                        + "%.0fms waited in total; up to %d threads pending; %.0f acquire timeouts%n",
+                acquisitions, acquisitions == 0 ? 0 : waitMillis / acquisitions, after.maxAcquireMillis,
+                waitMillis, maxPending, after.timeouts - before.timeouts);
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String spec) {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String part : spec.split(",")) {
+            String[] weight = part.split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like deposit=30, got: " + part);
+            }
+            int value = Integer.parseInt(weight[1].trim());
+            if (value > 0) {
+                mix.put(Endpoint.parse(weight[0]), value);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one endpoint with a positive weight");
+        }
+        return mix;
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    // Cumulative Hikari meters; the measured window is the difference of two snapshots
+    private record PoolSnapshot(long acquisitions, double acquireMillis, double maxAcquireMillis, double timeouts) {
+
+        static PoolSnapshot take(MeterRegistry registry) {
+            Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+            Counter timeouts = registry.find("hikaricp.connections.timeout").counter();
+            return new PoolSnapshot(
+                    acquire == null ? 0 : acquire.count(),
+                    acquire == null ? 0 : acquire.totalTime(TimeUnit.MILLISECONDS),
+                    acquire == null ? 0 : acquire.max(TimeUnit.MILLISECONDS),
+                    timeouts == null ? 0 : timeouts.count());
+        }
+
+        static long pending(MeterRegistry registry) {
+            Gauge pending = registry.find("hikaricp.connections.pending").gauge();
+            return pending == null ? 0 : (long) pending.value();
+        }
+    }
+}
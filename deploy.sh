@@ -32,10 +32,13 @@ primary_region = "iad"
   method = "get"
   path = "/ping"
   timeout = "2s"
+
+[deploy]
+  strategy = "immediate"
 EOF
 fi
 
-# Deploy to Fly.io
+# Deploy to Fly.io (immediate strategy: the app is down until the new machines have migrated and started)
 echo "Deploying to Fly.io..."
 fly deploy
 
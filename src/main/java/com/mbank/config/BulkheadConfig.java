@@ -0,0 +1,43 @@
+package com.mbank.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.web.http.SessionRepositoryFilter;
+
+// Registers the connection-pool bulkhead on every page that can touch the database
+@Configuration
+public class BulkheadConfig {
+
+    @Value("${mbank.bulkhead.enabled:true}")
+    private boolean enabled;
+
+    // Defaults to the Hikari pool size: one permit per connection
+    @Value("${mbank.bulkhead.permits:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int permits;
+
+    // Carved out of the permits above for long-running streaming CSV exports
+    @Value("${mbank.bulkhead.export-permits:1}")
+    private int exportPermits;
+
+    @Value("${mbank.bulkhead.acquire-timeout-ms:500}")
+    private long acquireTimeoutMs;
+
+    // Requests wait on the ledger writer while holding a connection (idempotent movements, admin
+    // evictions), so the writer's connection is kept out of the request permits
+    @Value("${mbank.ledger.in-memory.enabled:false}")
+    private boolean inMemoryLedger;
+
+    @Bean
+    public FilterRegistrationBean<ConnectionBulkheadFilter> connectionBulkheadFilter() {
+        int reserved = exportPermits + (inMemoryLedger ? 1 : 0);
+        int requestPermits = Math.max(1, permits - reserved);
+        FilterRegistrationBean<ConnectionBulkheadFilter> registration = new FilterRegistrationBean<>(
+                new ConnectionBulkheadFilter(requestPermits, exportPermits, acquireTimeoutMs));
+        // Before Spring Session's filter, so its JDBC reads and writes hold the permit too
+        registration.setOrder(SessionRepositoryFilter.DEFAULT_ORDER - 1);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+}
@@ -0,0 +1,125 @@
+package com.mbank.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of requests working against the database at the connection-pool size.
+ *
+ * A request that cannot get a permit within the acquire timeout is forwarded to {@link #BUSY_PATH}
+ * (rendered as a 503 "busy" page) instead of queueing in Hikari for the full connection-timeout.
+ * This matters most with virtual threads, where the servlet container no longer limits
+ * concurrency by itself.
+ *
+ * Runs as a servlet filter outside Spring Session's, so loading and saving a JDBC-backed session
+ * happens under the same permit as the rest of the request.
+ *
+ * Streaming CSV exports keep their connection for as long as the download runs, so they draw
+ * from a separate, smaller set of permits and can never starve interactive pages. Their permit
+ * is released when the async response completes, not when the handler returns.
+ */
+public class ConnectionBulkheadFilter extends OncePerRequestFilter {
+
+    public static final String BUSY_PATH = "/busy";
+
+    private static final List<String> EXCLUDED = List.of("/", "/ping", BUSY_PATH, "/error", "/actuator/**");
+    private static final List<String> EXPORTS = List.of("/statement/export", "/admin/accounts/export");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final Semaphore requestPermits;
+    private final Semaphore exportPermits;
+    private final long acquireTimeoutMs;
+
+    public ConnectionBulkheadFilter(int requestPermits, int exportPermits, long acquireTimeoutMs) {
+        this.requestPermits = new Semaphore(requestPermits, true);
+        this.exportPermits = new Semaphore(exportPermits, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        return EXCLUDED.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        Semaphore permits = EXPORTS.contains(path) ? exportPermits : requestPermits;
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            request.getRequestDispatcher(BUSY_PATH).forward(request, response);
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    public int availablePermits() {
+        return requestPermits.availablePermits();
+    }
+
+    public int availableExportPermits() {
+        return exportPermits.availablePermits();
+    }
+
+    // Frees a streamed response's permit exactly once, however the async request ends
+    private record ReleaseOnCompletion(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this); // listeners are cleared when async restarts
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.mbank.config;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+// Where ConnectionBulkheadFilter forwards rejected requests; ServiceBusyHandler renders the page
+@Controller
+public class ServiceBusyController {
+
+    @RequestMapping(ConnectionBulkheadFilter.BUSY_PATH)
+    public String busy() {
+        throw new ServiceBusyException();
+    }
+}
@@ -0,0 +1,11 @@
+package com.mbank.config;
+
+// Thrown when a request cannot get a database bulkhead permit in time
+public class ServiceBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServiceBusyException() {
+        super("MBank is busy right now. Please try again in a moment.");
+    }
+}
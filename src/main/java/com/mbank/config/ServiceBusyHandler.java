@@ -0,0 +1,22 @@
+package com.mbank.config;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Renders the "busy" page (503 with Retry-After) when the bulkhead rejects a request
+@ControllerAdvice
+public class ServiceBusyHandler {
+
+    @ExceptionHandler(ServiceBusyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleBusy(ServiceBusyException e, HttpServletResponse response, Model model) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+        model.addAttribute("message", e.getMessage());
+        return "busy";
+    }
+}
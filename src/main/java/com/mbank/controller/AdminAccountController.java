@@ -0,0 +1,113 @@
+package com.mbank.controller;
+
+import com.mbank.model.Money;
+import com.mbank.service.AccountAdminService;
+import com.mbank.service.BankingException;
+import com.mbank.service.LedgerSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Admin account listing (JSON, keyset pages), CSV export and point-in-time balances.
+// Disabled unless mbank.admin.token is set; callers send it in the X-Admin-Token header.
+@RestController
+@RequestMapping("/admin/accounts")
+public class AdminAccountController {
+
+    @Autowired
+    private AccountAdminService accountAdminService;
+
+    @Autowired
+    private LedgerSnapshotService snapshotService;
+
+    @Value("${mbank.admin.token:}")
+    private String adminToken;
+
+    @GetMapping
+    public ResponseEntity<AccountAdminService.AccountPage> listAccounts(
+            @RequestHeader(name = "X-Admin-Token", required = false) String token,
+            @RequestParam(required = false, defaultValue = AccountAdminService.SORT_ACCOUNT_NUMBER) String sort,
+            @RequestParam(required = false) BigDecimal minBalance,
+            @RequestParam(required = false) BigDecimal maxBalance,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer size) {
+
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(accountAdminService.listAccounts(sort, cents(minBalance), cents(maxBalance), after, size));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(
+            @RequestHeader(name = "X-Admin-Token", required = false) String token,
+            @RequestParam(required = false, defaultValue = AccountAdminService.SORT_ACCOUNT_NUMBER) String sort,
+            @RequestParam(required = false) BigDecimal minBalance,
+            @RequestParam(required = false) BigDecimal maxBalance) {
+
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        Long min = cents(minBalance);
+        Long max = cents(maxBalance);
+        StreamingResponseBody body = out -> accountAdminService.writeCsv(sort, min, max, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"accounts.csv\"")
+                .body(body);
+    }
+
+    // Balance as of a point in time, replayed from the journal (event-sourced ledger only)
+    @GetMapping("/{accountNumber}/balance")
+    public ResponseEntity<Map<String, Object>> balanceAt(
+            @RequestHeader(name = "X-Admin-Token", required = false) String token,
+            @PathVariable Integer accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+
+        if (!authorized(token) || !snapshotService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        LocalDateTime pointInTime = asOf != null ? asOf : LocalDateTime.now();
+        try {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("accountNumber", accountNumber);
+            body.put("asOf", pointInTime);
+            body.put("balance", Money.format(snapshotService.balanceAt(accountNumber, pointInTime)));
+            return ResponseEntity.ok(body);
+        } catch (BankingException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    // Balance filters are given in rands
+    private static Long cents(BigDecimal rands) {
+        return rands != null ? Money.fromRands(rands.setScale(2, RoundingMode.HALF_UP)) : null;
+    }
+
+    private boolean authorized(String token) {
+        return adminToken != null && !adminToken.isEmpty() && token != null
+                && MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8),
+                        token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,7 @@
 package com.mbank.controller;
 
 import com.mbank.model.BankAccount;
+import com.mbank.model.SessionPrincipal;
 import com.mbank.service.BankAccountService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,10 +38,8 @@ public class AuthController {
             Optional<BankAccount> accountOpt = accountService.login(email, password);
 
             if (accountOpt.isPresent()) {
-                BankAccount account = accountOpt.get();
-                session.setAttribute("account", account);
-                session.setAttribute("accountNumber", account.getAccountNumber());
-
+                // Keep only a small immutable principal in the session, never the entity
+                session.setAttribute(SessionPrincipal.SESSION_KEY, SessionPrincipal.of(accountOpt.get()));
 
                 return "redirect:/dashboard";
             } else {
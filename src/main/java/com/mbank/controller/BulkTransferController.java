@@ -0,0 +1,119 @@
+package com.mbank.controller;
+
+import com.mbank.model.SessionPrincipal;
+import com.mbank.service.BankingException;
+import com.mbank.service.BankingMetrics;
+import com.mbank.service.BulkTransferService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Payroll-style batches: one debit account, many recipients, one request.
+// Accepts a JSON array of {toAccount, amount, description} or CSV lines "toAccount,amount,description".
+@RestController
+public class BulkTransferController {
+
+    @Autowired
+    private BulkTransferService bulkTransferService;
+
+    @Autowired
+    private BankingMetrics metrics;
+
+    @PostMapping(value = "/transfer/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> bulkTransferJson(@RequestBody List<BulkTransferService.BulkTransferRow> rows,
+                                              HttpSession session) {
+        return run(rows, session);
+    }
+
+    @PostMapping(value = "/transfer/bulk", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> bulkTransferCsv(@RequestBody String body, HttpSession session) {
+        List<BulkTransferService.BulkTransferRow> rows;
+        try {
+            rows = parseCsv(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+        return run(rows, session);
+    }
+
+    private ResponseEntity<?> run(List<BulkTransferService.BulkTransferRow> rows, HttpSession session) {
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            return ResponseEntity.ok(metrics.record("bulk_transfer",
+                    () -> bulkTransferService.transfer(principal.getAccountNumber(), rows)));
+        } catch (BankingException e) {
+            return ResponseEntity.badRequest().body(Map.of("reason", e.getReason().name(), "message", e.getMessage()));
+        }
+    }
+
+    // toAccount,amount[,description] per line. A header line and blank lines are skipped;
+    // descriptions may be double-quoted to include commas.
+    static List<BulkTransferService.BulkTransferRow> parseCsv(String body) {
+        List<BulkTransferService.BulkTransferRow> rows = new ArrayList<>();
+        String[] lines = body.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = splitCsvLine(line);
+            if (rows.isEmpty() && !fields.get(0).trim().matches("\\d+")) {
+                continue; // header
+            }
+            if (fields.size() < 2) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected toAccount,amount[,description]");
+            }
+            try {
+                rows.add(new BulkTransferService.BulkTransferRow(
+                        Integer.valueOf(fields.get(0).trim()),
+                        new BigDecimal(fields.get(1).trim()),
+                        fields.size() > 2 && !fields.get(2).isBlank() ? fields.get(2).trim() : null));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": invalid account number or amount");
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
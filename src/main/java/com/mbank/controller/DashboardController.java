@@ -1,19 +1,49 @@
 package com.mbank.controller;
 
 import com.mbank.model.BankAccount;
+import com.mbank.model.SessionPrincipal;
+import com.mbank.service.BankAccountService;
+import com.mbank.service.PageEtagService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
 
 @Controller
 public class DashboardController {
 
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private PageEtagService pageEtagService;
+
     @GetMapping("/dashboard")
-    public String showDashboard(HttpSession session, Model model) {
+    public String showDashboard(HttpSession session, Model model, WebRequest webRequest,
+                                HttpServletResponse response) {
         // Check if user is logged in
-        BankAccount account = (BankAccount) session.getAttribute("account");
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
+            return "redirect:/login";
+        }
+
+        // Browser already has this balance rendered: 304, no account load or rendering
+        String etag = pageEtagService.dashboardEtag(principal.getAccountNumber());
+        if (etag != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+        }
+
+        // Always show the current balance, never a copy cached at login
+        BankAccount account = accountService.getAccount(principal.getAccountNumber()).orElse(null);
         if (account == null) {
+            session.invalidate();
             return "redirect:/login";
         }
 
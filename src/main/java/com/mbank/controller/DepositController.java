@@ -1,17 +1,23 @@
 package com.mbank.controller;
 
 import com.mbank.model.BankAccount;
+import com.mbank.model.Money;
+import com.mbank.model.SessionPrincipal;
 import com.mbank.service.BankAccountService;
+import com.mbank.service.BankingMetrics;
+import com.mbank.service.IdempotencyService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
 
 @Controller
 public class DepositController {
@@ -19,58 +25,75 @@ public class DepositController {
     @Autowired
     private BankAccountService accountService;
 
+    @Autowired
+    private BankingMetrics metrics;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     // Show deposit page
     @GetMapping("/deposit")
     public String showDepositPage(HttpSession session, Model model) {
-        BankAccount account = (BankAccount) session.getAttribute("account");
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
+            return "redirect:/login";
+        }
+
+        BankAccount account = accountService.getAccount(principal.getAccountNumber()).orElse(null);
         if (account == null) {
+            session.invalidate();
             return "redirect:/login";
         }
 
         model.addAttribute("account", account);
+        // One key per rendered form, so a resubmitted form is applied only once
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
         return "deposit";
     }
 
     // Process deposit
     @PostMapping("/deposit")
-    public String processDeposit(@RequestParam Double amount,
+    public String processDeposit(@RequestParam BigDecimal amount,
+                                 @RequestParam(name = "idempotencyKey", required = false) String idempotencyKeyParam,
+                                 @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKeyHeader,
                                  HttpSession session,
                                  Model model) {
 
-        BankAccount account = (BankAccount) session.getAttribute("account");
-        if (account == null) {
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
             return "redirect:/login";
         }
 
-        try {
-            // Perform deposit
-            BankAccount updatedAccount = accountService.deposit(account.getAccountNumber(), amount);
+        // API clients send the Idempotency-Key header; the HTML form posts a hidden field
+        String idempotencyKey = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKeyParam;
 
-            // Update session with new account data
-            session.setAttribute("account", updatedAccount);
+        try {
+            long cents = Money.fromRands(amount);
 
-            // Generate transaction ID
-            String transactionId = "DPT" + System.currentTimeMillis() + (int)(Math.random() * 1000);
+            // Perform deposit
+            BankAccountService.BalanceChange change = metrics.record("deposit",
+                    () -> idempotencyService.deposit(principal.getAccountNumber(), cents, idempotencyKey));
 
             // Prepare model attributes for outcome page
             model.addAttribute("outcome", "success");
             model.addAttribute("message", "Deposit Successful!");
-            model.addAttribute("depositAmount", amount);
-            model.addAttribute("oldBalance", account.getBalance());
-            model.addAttribute("newBalance", updatedAccount.getBalance());
-            model.addAttribute("transactionId", transactionId);
-            model.addAttribute("transactionDate", LocalDateTime.now().format(
+            model.addAttribute("depositAmount", cents);
+            model.addAttribute("oldBalance", change.oldBalance);
+            model.addAttribute("newBalance", change.newBalance);
+            model.addAttribute("transactionId", change.transactionId);
+            model.addAttribute("transactionDate", change.transactionDate.format(
                     DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm:ss")
             ));
-            model.addAttribute("accountNumber", account.getAccountNumber());
-            model.addAttribute("accountHolder", account.getAccountHolder());
+            model.addAttribute("accountNumber", principal.getAccountNumber());
+            model.addAttribute("accountHolder", principal.getAccountHolder());
 
             return "deposit_outcome";
 
         } catch (RuntimeException e) {
             model.addAttribute("outcome", "error");
             model.addAttribute("message", e.getMessage());
-            model.addAttribute("account", account);
+            model.addAttribute("account", accountService.getAccount(principal.getAccountNumber()).orElse(null));
+            model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
             return "deposit";
         }
     }
@@ -18,9 +18,4 @@ public class PingController {
         response.put("message", "Service is awake and running");
         return response;
     }
-
-    @GetMapping("/")
-    public String home() {
-        return "MBank Spring Boot is running! Go to /login to start.";
-    }
 }
\ No newline at end of file
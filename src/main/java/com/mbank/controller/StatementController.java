@@ -1,50 +1,74 @@
 package com.mbank.controller;
 
-import com.mbank.model.BankAccount;
-import com.mbank.model.Transaction;
-import com.mbank.repository.TransactionRepository;
+import com.mbank.model.SessionPrincipal;
+import com.mbank.service.BankAccountService;
+import com.mbank.service.BankingMetrics;
+import com.mbank.service.PageEtagService;
+import com.mbank.service.StatementExportService;
+import com.mbank.service.TransactionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.net.URI;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 @Controller
 public class StatementController {
 
+    private static final Logger log = LoggerFactory.getLogger(StatementController.class);
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
     @Autowired
-    private TransactionRepository transactionRepository;
+    private StatementExportService statementExportService;
+
+    @Autowired
+    private BankingMetrics metrics;
+
+    @Autowired
+    private PageEtagService pageEtagService;
 
     @GetMapping("/statement")
     public String viewStatement(
             HttpSession session,
             Model model,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateParam,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateParam,
-            @RequestParam(required = false, defaultValue = "ALL") String typeFilter) {
-
-        System.out.println("=== StatementController called ===");
+            WebRequest webRequest,
+            HttpServletResponse response,
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateParam,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateParam,
+            @RequestParam(required = false, defaultValue = "ALL") String typeFilter,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before) {
 
         // Check if user is logged in
-        BankAccount account = (BankAccount) session.getAttribute("account");
-        if (account == null) {
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
             return "redirect:/login";
         }
 
-        int accountNumber = account.getAccountNumber();
-        System.out.println("Processing statement for account #" + accountNumber);
-
-        // Set account info
-        model.addAttribute("accountNumber", accountNumber);
-        model.addAttribute("accountHolder", account.getAccountHolder());
-        model.addAttribute("currentBalance", account.getBalance());
+        int accountNumber = principal.getAccountNumber();
 
         // Set default dates
         LocalDate defaultEndDate = LocalDate.now();
@@ -58,143 +82,101 @@ public class StatementController {
             startDate = endDate.minusDays(30);
         }
 
+        // Unchanged account and same page: 304 before any statement query or rendering
+        String etag = pageEtagService.statementEtag(accountNumber, startDate, endDate, typeFilter, after, before);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+        }
+
+        // Set account info
+        model.addAttribute("accountNumber", accountNumber);
+        model.addAttribute("accountHolder", principal.getAccountHolder());
+        model.addAttribute("currentBalance", accountService.getBalance(accountNumber));
 
         model.addAttribute("startDate", startDate.toString());
         model.addAttribute("endDate", endDate.toString());
         model.addAttribute("typeFilter", typeFilter);
 
         try {
-            System.out.println("Fetching transactions from database...");
-            System.out.println("Date range: " + startDate + " to " + endDate);
-            System.out.println("Filter type: " + typeFilter);
+            log.debug("Statement for account #{}: {} to {}, filter {}", accountNumber, startDate, endDate, typeFilter);
 
-            List<Transaction> dbTransactions = new ArrayList<>();
             LocalDateTime startDateTime = startDate.atStartOfDay();
             LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
 
-            if ("ALL".equals(typeFilter)) {
-                // Get all transactions for account within date range
-                dbTransactions = transactionRepository.findByAccountNumberAndTransactionDateBetweenOrderByTransactionDateDesc(
-                        accountNumber, startDateTime, endDateTime);
-                System.out.println("Found " + dbTransactions.size() + " ALL transactions");
-            } else if ("TRANSFER".equals(typeFilter)) {
-                // Get transfer transactions
-                List<Transaction> debitTransfers = transactionRepository
-                        .findByAccountNumberAndTransactionTypeAndTransactionDateBetweenOrderByTransactionDateDesc(
-                                accountNumber, "TRANSFER_DEBIT", startDateTime, endDateTime);
-                List<Transaction> creditTransfers = transactionRepository
-                        .findByAccountNumberAndTransactionTypeAndTransactionDateBetweenOrderByTransactionDateDesc(
-                                accountNumber, "TRANSFER_CREDIT", startDateTime, endDateTime);
-
-                System.out.println("Found " + debitTransfers.size() + " debit transfers");
-                System.out.println("Found " + creditTransfers.size() + " credit transfers");
-
-                dbTransactions.addAll(debitTransfers);
-                dbTransactions.addAll(creditTransfers);
-
-                // Sort by date descending
-                dbTransactions.sort((a, b) -> b.getTransactionDate().compareTo(a.getTransactionDate()));
-            } else {
+            // One keyset page (LIMIT in the database) instead of loading the whole range
+            TransactionService.StatementPage page = metrics.record("statement", () -> transactionService.getStatementPage(
+                    accountNumber, startDateTime, endDateTime, typeFilter, after, before));
+            log.debug("Statement page has {} transactions", page.transactions.size());
 
-                dbTransactions = transactionRepository
-                        .findByAccountNumberAndTransactionTypeAndTransactionDateBetweenOrderByTransactionDateDesc(
-                                accountNumber, typeFilter, startDateTime, endDateTime);
-                System.out.println("Found " + dbTransactions.size() + " " + typeFilter + " transactions");
-            }
+            model.addAttribute("nextCursor", page.nextCursor);
+            model.addAttribute("previousCursor", page.previousCursor);
 
+            // StatementRow already carries the display type and formatted date the template reads
+            model.addAttribute("transactions", page.transactions);
 
-            if (dbTransactions.size() > 100) {
-                dbTransactions = dbTransactions.subList(0, 100);
-            }
-
-            System.out.println("Total transactions to display: " + dbTransactions.size());
-
-
-            List<Map<String, Object>> transactions = new ArrayList<>();
-            double totalDeposits = 0;
-            double totalWithdrawals = 0;
-            double totalTransfers = 0;
-            double totalFees = 0;
-
-            DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
-
-            for (Transaction tx : dbTransactions) {
-                Map<String, Object> transaction = new HashMap<>();
-
-                String dbType = tx.getTransactionType();
-                String displayType;
-
-                if (dbType.startsWith("TRANSFER_")) {
-                    displayType = "TRANSFER";
-                } else {
-                    displayType = dbType;
-                }
-
-                transaction.put("type", displayType);
-                transaction.put("amount", tx.getAmount());
-                transaction.put("toAccount", tx.getToAccount());
-                transaction.put("description", tx.getDescription());
-                transaction.put("fee", tx.getFee() != null ? tx.getFee() : 0.0);
-                transaction.put("date", tx.getTransactionDate());
-                transaction.put("transactionId", tx.getTransactionId());
-
-                // Format date
-                if (tx.getTransactionDate() != null) {
-                    transaction.put("formattedDate", tx.getTransactionDate().format(displayFormatter));
-                } else {
-                    transaction.put("formattedDate", "N/A");
-                }
-
-                transactions.add(transaction);
-
-                // Update summary
-                switch (displayType) {
-                    case "DEPOSIT":
-                        totalDeposits += tx.getAmount();
-                        break;
-                    case "WITHDRAWAL":
-                        totalWithdrawals += Math.abs(tx.getAmount());
-                        break;
-                    case "TRANSFER":
-                        if (tx.getAmount() < 0) {
-                            totalTransfers += Math.abs(tx.getAmount());
-                        }
-                        break;
-                }
-                totalFees += (tx.getFee() != null ? tx.getFee() : 0.0);
-            }
-
-            model.addAttribute("transactions", transactions);
-
-            // Create summary
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalDeposits", totalDeposits);
-            summary.put("totalWithdrawals", totalWithdrawals);
-            summary.put("totalTransfers", totalTransfers);
-            summary.put("totalFees", totalFees);
-            summary.put("transactionCount", transactions.size());
+            // Summary covers the whole range and filter, not just the page on screen
+            TransactionService.TransactionSummary summary = metrics.record("statement_summary",
+                    () -> transactionService.getTransactionSummary(
+                            accountNumber, startDateTime, endDateTime, TransactionService.statementTypes(typeFilter)));
 
             model.addAttribute("summary", summary);
-            System.out.println("Summary created: Deposits=" + totalDeposits +
-                    ", Withdrawals=" + totalWithdrawals + ", Transfers=" + totalTransfers);
 
         } catch (Exception e) {
-            System.err.println("Database error in StatementController: " + e.getMessage());
-            e.printStackTrace();
-            model.addAttribute("error", "Database error: " + e.getMessage());
-
+            // Details go to the log only; database error text must not reach the page
+            log.error("Could not load statement page", e);
+            model.addAttribute("error", "Your transactions could not be loaded right now. Please try again.");
+            // The ETag is already set; never let a browser revalidate an error page into a 304
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
 
             model.addAttribute("transactions", new ArrayList<>());
-
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalDeposits", 0.0);
-            summary.put("totalWithdrawals", 0.0);
-            summary.put("totalTransfers", 0.0);
-            summary.put("totalFees", 0.0);
-            summary.put("transactionCount", 0);
-            model.addAttribute("summary", summary);
+            model.addAttribute("summary", new TransactionService.TransactionSummary());
         }
 
         return "statement";
     }
-}
\ No newline at end of file
+
+    // Full-history download, streamed row by row (CSV by default, OFX with format=ofx)
+    @GetMapping("/statement/export")
+    public ResponseEntity<StreamingResponseBody> exportStatement(
+            HttpSession session,
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDateParam,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDateParam,
+            @RequestParam(required = false, defaultValue = "csv") String format,
+            @RequestParam(required = false, defaultValue = "false") boolean gzip) {
+
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create("/login")).build();
+        }
+
+        Integer accountNumber = principal.getAccountNumber();
+        LocalDateTime startDateTime = (startDateParam != null ? startDateParam : LocalDate.of(1970, 1, 1)).atStartOfDay();
+        LocalDateTime endDateTime = (endDateParam != null ? endDateParam : LocalDate.now()).atTime(23, 59, 59);
+        boolean ofx = "ofx".equalsIgnoreCase(format);
+
+        String filename = "statement-" + accountNumber + (ofx ? ".ofx" : ".csv") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : ofx ? MediaType.parseMediaType("application/x-ofx")
+                : MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            if (ofx) {
+                statementExportService.writeOfx(accountNumber, startDateTime, endDateTime, target);
+            } else {
+                statementExportService.writeCsv(accountNumber, startDateTime, endDateTime, target);
+            }
+            if (target instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
@@ -1,18 +1,23 @@
 package com.mbank.controller;
 
 import com.mbank.model.BankAccount;
+import com.mbank.model.Money;
+import com.mbank.model.SessionPrincipal;
 import com.mbank.service.BankAccountService;
-import com.mbank.service.TransactionService;
+import com.mbank.service.BankingMetrics;
+import com.mbank.service.IdempotencyService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
 
 @Controller
 public class TransferController {
@@ -21,136 +26,74 @@ public class TransferController {
     private BankAccountService accountService;
 
     @Autowired
-    private TransactionService transactionService;
+    private BankingMetrics metrics;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     // Show transfer page
     @GetMapping("/transfer")
     public String showTransferPage(HttpSession session, Model model) {
-        BankAccount account = (BankAccount) session.getAttribute("account");
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
+            return "redirect:/login";
+        }
+
+        BankAccount account = accountService.getAccount(principal.getAccountNumber()).orElse(null);
         if (account == null) {
+            session.invalidate();
             return "redirect:/login";
         }
 
         model.addAttribute("account", account);
+        // One key per rendered form, so a resubmitted form is applied only once
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
         return "transfer";
     }
 
     // Process transfer
     @PostMapping("/transfer")
     public String processTransfer(@RequestParam Integer toAccount,
-                                  @RequestParam Double amount,
+                                  @RequestParam BigDecimal amount,
                                   @RequestParam(required = false) String description,
+                                  @RequestParam(name = "idempotencyKey", required = false) String idempotencyKeyParam,
+                                  @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKeyHeader,
                                   HttpSession session,
                                   Model model) {
 
-        BankAccount fromAccount = (BankAccount) session.getAttribute("account");
-        if (fromAccount == null) {
+        SessionPrincipal principal = (SessionPrincipal) session.getAttribute(SessionPrincipal.SESSION_KEY);
+        if (principal == null) {
             return "redirect:/login";
         }
 
+        // API clients send the Idempotency-Key header; the HTML form posts a hidden field
+        String idempotencyKey = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKeyParam;
+
         try {
             // Set common attributes
-            model.addAttribute("fromAccountNumber", fromAccount.getAccountNumber());
-            model.addAttribute("fromAccountHolder", fromAccount.getAccountHolder());
-            model.addAttribute("oldBalance", fromAccount.getBalance());
+            model.addAttribute("fromAccountNumber", principal.getAccountNumber());
+            model.addAttribute("fromAccountHolder", principal.getAccountHolder());
             model.addAttribute("toAccountNumber", toAccount);
-            model.addAttribute("transferAmount", amount);
             model.addAttribute("description", description != null ? description : "");
 
-            // Validations
-            if (amount <= 0) {
-                model.addAttribute("outcome", "error");
-                model.addAttribute("message", "Transfer amount must be greater than zero!");
-                return "transfer_outcome";
-            }
-
-            if (amount > 100000) {
-                model.addAttribute("outcome", "error");
-                model.addAttribute("message", "Maximum transfer is R100,000 per transaction!");
-                return "transfer_outcome";
-            }
-
-            if (toAccount.equals(fromAccount.getAccountNumber())) {
-                model.addAttribute("outcome", "error");
-                model.addAttribute("message", "Cannot transfer to your own account!");
-                return "transfer_outcome";
-            }
-
-            // Check if recipient account exists
-            if (!accountService.accountExists(toAccount)) {
-                model.addAttribute("outcome", "error");
-                model.addAttribute("message", "Recipient account #" + toAccount + " not found!");
-                return "transfer_outcome";
-            }
-
-            String toAccountHolder = accountService.getAccountHolderName(toAccount);
-            model.addAttribute("toAccountHolder", toAccountHolder);
-
-            // Calculate fee (R10 for transfers over R1000)
-            double fee = amount > 1000 ? 10 : 0;
-            double totalDebit = amount + fee;
-
-            // Check if sufficient funds
-            if (fromAccount.getBalance() < totalDebit) {
-                model.addAttribute("outcome", "error");
-                model.addAttribute("message", String.format(
-                        "Insufficient funds! Required: R%,.2f (including R%.2f fee). Available: R%,.2f",
-                        totalDebit, fee, fromAccount.getBalance()
-                ));
-                return "transfer_outcome";
-            }
-
-            // Perform the transfer
-            BankAccount fromAccountUpdated = accountService.getAccount(fromAccount.getAccountNumber())
-                    .orElseThrow(() -> new RuntimeException("From account not found"));
-            BankAccount toAccountUpdated = accountService.getAccount(toAccount)
-                    .orElseThrow(() -> new RuntimeException("To account not found"));
-
-            fromAccountUpdated.setBalance(fromAccountUpdated.getBalance() - totalDebit);
-            toAccountUpdated.setBalance(toAccountUpdated.getBalance() + amount);
-
-            accountService.updateAccount(fromAccountUpdated);
-            accountService.updateAccount(toAccountUpdated);
-
-            // Generate UNIQUE transaction IDs for each transaction
-            String timestamp = String.valueOf(System.currentTimeMillis());
-            String debitTransactionId = "TRF-DEBIT-" + timestamp + "-" + (int)(Math.random() * 1000);
-            String creditTransactionId = "TRF-CREDIT-" + timestamp + "-" + (int)(Math.random() * 1000);
-
-
-            transactionService.recordTransactionWithFee(
-                    fromAccount.getAccountNumber(),
-                    "TRANSFER_DEBIT",
-                    -amount,
-                    toAccount.toString(),
-                    description != null ? description : "Transfer to account #" + toAccount,
-                    fee,
-                    debitTransactionId
-            );
-
-            transactionService.recordTransactionWithFee(
-                    toAccount,
-                    "TRANSFER_CREDIT",
-                    amount,
-                    fromAccount.getAccountNumber().toString(),
-                    description != null ? description : "Transfer from account #" + fromAccount.getAccountNumber(),
-                    0.0,
-                    creditTransactionId
-            );
-
-            // Update session with new balance
-            BankAccount updatedSessionAccount = accountService.getAccount(fromAccount.getAccountNumber())
-                    .orElseThrow(() -> new RuntimeException("Account not found after transfer"));
-            session.setAttribute("account", updatedSessionAccount);
+            long cents = Money.fromRands(amount);
+            model.addAttribute("transferAmount", cents);
 
+            // Validate, lock both accounts, move the money and journal both legs in one call
+            BankAccountService.TransferResult result =
+                    metrics.record("transfer",
+                            () -> idempotencyService.transfer(principal.getAccountNumber(), toAccount, cents,
+                                    description, idempotencyKey));
 
             model.addAttribute("outcome", "success");
             model.addAttribute("message", "Transfer Successful!");
-            model.addAttribute("newBalance", updatedSessionAccount.getBalance());
-            model.addAttribute("fee", fee);
-            model.addAttribute("totalDebit", totalDebit);
-            model.addAttribute("transactionId", debitTransactionId); // Use debit transaction ID for display
-            model.addAttribute("transactionDate", LocalDateTime.now().format(
+            model.addAttribute("toAccountHolder", result.toAccountHolder);
+            model.addAttribute("oldBalance", result.oldBalance);
+            model.addAttribute("newBalance", result.newBalance);
+            model.addAttribute("fee", result.fee);
+            model.addAttribute("totalDebit", result.totalDebit);
+            model.addAttribute("transactionId", result.transactionId);
+            model.addAttribute("transactionDate", result.transactionDate.format(
                     DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm:ss")
             ));
 
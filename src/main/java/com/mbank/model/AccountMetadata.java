@@ -0,0 +1,19 @@
+package com.mbank.model;
+
+// Immutable, balance-free view of an account, safe to cache
+public final class AccountMetadata {
+
+    private final Integer accountNumber;
+    private final String accountHolder;
+    private final String email;
+
+    public AccountMetadata(Integer accountNumber, String accountHolder, String email) {
+        this.accountNumber = accountNumber;
+        this.accountHolder = accountHolder;
+        this.email = email;
+    }
+
+    public Integer getAccountNumber() { return accountNumber; }
+    public String getAccountHolder() { return accountHolder; }
+    public String getEmail() { return email; }
+}
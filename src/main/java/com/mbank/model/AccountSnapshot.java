@@ -0,0 +1,99 @@
+package com.mbank.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Checkpoint of an account's balance, covering every journal row up to (lastTransactionDate, lastRowId)
+@Entity
+@Table(name = "account_snapshots")
+@IdClass(AccountSnapshot.Key.class)
+public class AccountSnapshot {
+
+    @Id
+    @Column(name = "account_number")
+    private Integer accountNumber;
+
+    @Id
+    @Column(name = "last_row_id")
+    private Long lastRowId;
+
+    @Column(name = "last_transaction_date", nullable = false)
+    private LocalDateTime lastTransactionDate;
+
+    // In cents
+    @Column(nullable = false)
+    private long balance;
+
+    // Journal rows folded into this snapshot since the account was opened
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+
+    public AccountSnapshot() {}
+
+    public AccountSnapshot(Integer accountNumber, Long lastRowId, LocalDateTime lastTransactionDate,
+                           long balance, Long eventCount) {
+        this.accountNumber = accountNumber;
+        this.lastRowId = lastRowId;
+        this.lastTransactionDate = lastTransactionDate;
+        this.balance = balance;
+        this.eventCount = eventCount;
+        this.createdAt = LocalDateTime.now();
+    }
+
+
+    public Integer getAccountNumber() { return accountNumber; }
+    public void setAccountNumber(Integer accountNumber) { this.accountNumber = accountNumber; }
+
+    public Long getLastRowId() { return lastRowId; }
+    public void setLastRowId(Long lastRowId) { this.lastRowId = lastRowId; }
+
+    public LocalDateTime getLastTransactionDate() { return lastTransactionDate; }
+    public void setLastTransactionDate(LocalDateTime lastTransactionDate) { this.lastTransactionDate = lastTransactionDate; }
+
+    public long getBalance() { return balance; }
+    public void setBalance(long balance) { this.balance = balance; }
+
+    public Long getEventCount() { return eventCount; }
+    public void setEventCount(Long eventCount) { this.eventCount = eventCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Integer accountNumber;
+        private Long lastRowId;
+
+        public Key() {}
+
+        public Key(Integer accountNumber, Long lastRowId) {
+            this.accountNumber = accountNumber;
+            this.lastRowId = lastRowId;
+        }
+
+        public Integer getAccountNumber() { return accountNumber; }
+        public Long getLastRowId() { return lastRowId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(accountNumber, key.accountNumber)
+                    && Objects.equals(lastRowId, key.lastRowId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountNumber, lastRowId);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.mbank.model;
+
+import java.time.LocalDateTime;
+
+// Admin listing row: everything except the password (balance in cents), loaded via a constructor projection
+public final class AccountSummary {
+
+    private final Integer accountNumber;
+    private final String accountHolder;
+    private final String email;
+    private final long balance;
+    private final LocalDateTime createdAt;
+
+    public AccountSummary(Integer accountNumber, String accountHolder, String email,
+                          long balance, LocalDateTime createdAt) {
+        this.accountNumber = accountNumber;
+        this.accountHolder = accountHolder;
+        this.email = email;
+        this.balance = balance;
+        this.createdAt = createdAt;
+    }
+
+    public Integer getAccountNumber() { return accountNumber; }
+    public String getAccountHolder() { return accountHolder; }
+    public String getEmail() { return email; }
+    public long getBalance() { return balance; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
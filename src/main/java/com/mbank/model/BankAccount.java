@@ -14,8 +14,9 @@ public class BankAccount {
     @Column(name = "account_holder", nullable = false)
     private String accountHolder;
 
+    // In cents
     @Column(nullable = false)
-    private Double balance;
+    private long balance;
 
     @Column(nullable = false, unique = true)
     private String email;
@@ -32,7 +33,7 @@ public class BankAccount {
     }
 
 
-    public BankAccount(Integer accountNumber, String accountHolder, Double balance,
+    public BankAccount(Integer accountNumber, String accountHolder, long balance,
                        String email, String password) {
         this.accountNumber = accountNumber;
         this.accountHolder = accountHolder;
@@ -59,11 +60,11 @@ public class BankAccount {
         this.accountHolder = accountHolder;
     }
 
-    public Double getBalance() {
+    public long getBalance() {
         return balance;
     }
 
-    public void setBalance(Double balance) {
+    public void setBalance(long balance) {
         this.balance = balance;
     }
 
@@ -92,7 +93,7 @@ public class BankAccount {
     }
 
 
-    public void deposit(double amount) {
+    public void deposit(long amount) {
         if (amount > 0) {
             this.balance += amount;
         } else {
@@ -100,7 +101,7 @@ public class BankAccount {
         }
     }
 
-    public void withdraw(double amount) {
+    public void withdraw(long amount) {
         if (amount > 0) {
             if (this.balance >= amount) {
                 this.balance -= amount;
@@ -117,9 +118,6 @@ public class BankAccount {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
-        if (balance == null) {
-            balance = 0.0;
-        }
     }
 
     @Override
@@ -0,0 +1,107 @@
+package com.mbank.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Per-account, per-day, per-type totals, kept up to date as transactions are recorded
+@Entity
+@Table(name = "daily_account_rollups")
+@IdClass(DailyAccountRollup.Key.class)
+public class DailyAccountRollup {
+
+    @Id
+    @Column(name = "account_number")
+    private Integer accountNumber;
+
+    @Id
+    @Column(name = "rollup_date")
+    private LocalDate rollupDate;
+
+    @Id
+    @Column(name = "transaction_type")
+    private String transactionType;
+
+    @Column(name = "tx_count", nullable = false)
+    private Long transactionCount = 0L;
+
+    // Money totals are in cents
+    @Column(name = "amount_total", nullable = false)
+    private long amountTotal;
+
+    // Sum of the negative amounts, as a positive number
+    @Column(name = "debit_total", nullable = false)
+    private long debitTotal;
+
+    // Sum of the positive amounts
+    @Column(name = "credit_total", nullable = false)
+    private long creditTotal;
+
+    @Column(name = "fee_total", nullable = false)
+    private long feeTotal;
+
+
+    public DailyAccountRollup() {}
+
+
+    public Integer getAccountNumber() { return accountNumber; }
+    public void setAccountNumber(Integer accountNumber) { this.accountNumber = accountNumber; }
+
+    public LocalDate getRollupDate() { return rollupDate; }
+    public void setRollupDate(LocalDate rollupDate) { this.rollupDate = rollupDate; }
+
+    public String getTransactionType() { return transactionType; }
+    public void setTransactionType(String transactionType) { this.transactionType = transactionType; }
+
+    public Long getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(Long transactionCount) { this.transactionCount = transactionCount; }
+
+    public long getAmountTotal() { return amountTotal; }
+    public void setAmountTotal(long amountTotal) { this.amountTotal = amountTotal; }
+
+    public long getDebitTotal() { return debitTotal; }
+    public void setDebitTotal(long debitTotal) { this.debitTotal = debitTotal; }
+
+    public long getCreditTotal() { return creditTotal; }
+    public void setCreditTotal(long creditTotal) { this.creditTotal = creditTotal; }
+
+    public long getFeeTotal() { return feeTotal; }
+    public void setFeeTotal(long feeTotal) { this.feeTotal = feeTotal; }
+
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Integer accountNumber;
+        private LocalDate rollupDate;
+        private String transactionType;
+
+        public Key() {}
+
+        public Key(Integer accountNumber, LocalDate rollupDate, String transactionType) {
+            this.accountNumber = accountNumber;
+            this.rollupDate = rollupDate;
+            this.transactionType = transactionType;
+        }
+
+        public Integer getAccountNumber() { return accountNumber; }
+        public LocalDate getRollupDate() { return rollupDate; }
+        public String getTransactionType() { return transactionType; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(accountNumber, key.accountNumber)
+                    && Objects.equals(rollupDate, key.rollupDate)
+                    && Objects.equals(transactionType, key.transactionType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountNumber, rollupDate, transactionType);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.mbank.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Stored outcome of a deposit, withdrawal or transfer sent with an idempotency key
+@Entity
+@Table(name = "idempotency_keys")
+@IdClass(IdempotencyRecord.Key.class)
+public class IdempotencyRecord {
+
+    @Id
+    @Column(name = "account_number")
+    private Integer accountNumber;
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 20)
+    private String operation;
+
+    // Money columns are in cents; the outcome columns stay null until the request completes
+    @Column(nullable = false)
+    private long amount;
+
+    @Column(name = "to_account")
+    private Integer toAccount;
+
+    @Column(name = "old_balance")
+    private Long oldBalance;
+
+    @Column(name = "new_balance")
+    private Long newBalance;
+
+    private Long fee;
+
+    @Column(name = "total_debit")
+    private Long totalDebit;
+
+    @Column(name = "to_account_holder")
+    private String toAccountHolder;
+
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "transaction_date")
+    private LocalDateTime transactionDate;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+
+    public IdempotencyRecord() {}
+
+
+    public Integer getAccountNumber() { return accountNumber; }
+    public void setAccountNumber(Integer accountNumber) { this.accountNumber = accountNumber; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public long getAmount() { return amount; }
+    public void setAmount(long amount) { this.amount = amount; }
+
+    public Integer getToAccount() { return toAccount; }
+    public void setToAccount(Integer toAccount) { this.toAccount = toAccount; }
+
+    public Long getOldBalance() { return oldBalance; }
+    public void setOldBalance(Long oldBalance) { this.oldBalance = oldBalance; }
+
+    public Long getNewBalance() { return newBalance; }
+    public void setNewBalance(Long newBalance) { this.newBalance = newBalance; }
+
+    public Long getFee() { return fee; }
+    public void setFee(Long fee) { this.fee = fee; }
+
+    public Long getTotalDebit() { return totalDebit; }
+    public void setTotalDebit(Long totalDebit) { this.totalDebit = totalDebit; }
+
+    public String getToAccountHolder() { return toAccountHolder; }
+    public void setToAccountHolder(String toAccountHolder) { this.toAccountHolder = toAccountHolder; }
+
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+    public void setTransactionDate(LocalDateTime transactionDate) { this.transactionDate = transactionDate; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Integer accountNumber;
+        private String idempotencyKey;
+
+        public Key() {}
+
+        public Key(Integer accountNumber, String idempotencyKey) {
+            this.accountNumber = accountNumber;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        public Integer getAccountNumber() { return accountNumber; }
+        public String getIdempotencyKey() { return idempotencyKey; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(accountNumber, key.accountNumber)
+                    && Objects.equals(idempotencyKey, key.idempotencyKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountNumber, idempotencyKey);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.mbank.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Money is held as a {@code long} number of cents everywhere below the web layer: entities,
+ * columns (BIGINT), services and summaries. Arithmetic on it is exact and never boxes.
+ * These helpers convert at the edges, where amounts are typed in or written out in rands.
+ */
+public final class Money {
+
+    public static final long CENTS_PER_RAND = 100;
+
+    private Money() {}
+
+    // Amount typed in by a user, in rands. Fractions of a cent are rejected rather than rounded.
+    public static long fromRands(BigDecimal rands) {
+        if (rands == null) {
+            throw new IllegalArgumentException("Please enter an amount!");
+        }
+        try {
+            return rands.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amounts can have at most two decimal places!");
+        }
+    }
+
+    // For display only; never feed the result back into a calculation
+    public static double toRands(long cents) {
+        return cents / (double) CENTS_PER_RAND;
+    }
+
+    // Plain "1234.50" / "-0.05", as written to CSV and OFX files
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % CENTS_PER_RAND;
+        return (cents < 0 ? "-" : "") + abs / CENTS_PER_RAND + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,26 @@
+package com.mbank.model;
+
+import java.io.Serializable;
+
+// The only thing kept in the HTTP session after login. Balances are always read from the service.
+public final class SessionPrincipal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String SESSION_KEY = "principal";
+
+    private final Integer accountNumber;
+    private final String accountHolder;
+
+    public SessionPrincipal(Integer accountNumber, String accountHolder) {
+        this.accountNumber = accountNumber;
+        this.accountHolder = accountHolder;
+    }
+
+    public static SessionPrincipal of(BankAccount account) {
+        return new SessionPrincipal(account.getAccountNumber(), account.getAccountHolder());
+    }
+
+    public Integer getAccountNumber() { return accountNumber; }
+    public String getAccountHolder() { return accountHolder; }
+}
@@ -0,0 +1,49 @@
+package com.mbank.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// One statement line: only the displayed columns, loaded via a constructor projection (money in cents)
+public final class StatementRow {
+
+    private static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
+
+    private final Long id;
+    private final LocalDateTime transactionDate;
+    private final String transactionType;
+    private final long amount;
+    private final long fee;
+    private final String toAccount;
+    private final String description;
+    private final String transactionId;
+
+    public StatementRow(Long id, LocalDateTime transactionDate, String transactionType, long amount, long fee,
+                        String toAccount, String description, String transactionId) {
+        this.id = id;
+        this.transactionDate = transactionDate;
+        this.transactionType = transactionType;
+        this.amount = amount;
+        this.fee = fee;
+        this.toAccount = toAccount;
+        this.description = description;
+        this.transactionId = transactionId;
+    }
+
+    public Long getId() { return id; }
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+    public String getTransactionType() { return transactionType; }
+    public long getAmount() { return amount; }
+    public long getFee() { return fee; }
+    public String getToAccount() { return toAccount; }
+    public String getDescription() { return description; }
+    public String getTransactionId() { return transactionId; }
+
+    // Both transfer legs show as TRANSFER
+    public String getType() {
+        return transactionType.startsWith("TRANSFER_") ? "TRANSFER" : transactionType;
+    }
+
+    public String getFormattedDate() {
+        return transactionDate != null ? transactionDate.format(DISPLAY_DATE) : "N/A";
+    }
+}
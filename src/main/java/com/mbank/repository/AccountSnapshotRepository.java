@@ -0,0 +1,23 @@
+package com.mbank.repository;
+
+import com.mbank.model.AccountSnapshot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AccountSnapshotRepository extends JpaRepository<AccountSnapshot, AccountSnapshot.Key> {
+
+    // Newest snapshot taken at or before a point in time (pass PageRequest.of(0, 1))
+    @Query("SELECT s FROM AccountSnapshot s WHERE s.accountNumber = :accountNumber " +
+            "AND s.lastTransactionDate <= :asOf " +
+            "ORDER BY s.lastTransactionDate DESC, s.lastRowId DESC")
+    List<AccountSnapshot> findLatestAtOrBefore(@Param("accountNumber") Integer accountNumber,
+                                               @Param("asOf") LocalDateTime asOf,
+                                               Pageable limit);
+}
@@ -1,14 +1,26 @@
 package com.mbank.repository;
 
+import com.mbank.model.AccountMetadata;
+import com.mbank.model.AccountSummary;
 import com.mbank.model.BankAccount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BankAccountRepository extends JpaRepository<BankAccount, Integer> {
@@ -24,5 +36,104 @@ public interface BankAccountRepository extends JpaRepository<BankAccount, Intege
     @Transactional
     @Query("UPDATE BankAccount b SET b.balance = :balance WHERE b.accountNumber = :accountNumber")
     void updateBalance(@Param("accountNumber") Integer accountNumber,
-                       @Param("balance") Double balance);
+                       @Param("balance") long balance);
+
+    // Atomic credit; returns the new balance, or empty if the account does not exist
+    @Query(value = "UPDATE accounts SET balance = balance + :amount WHERE account_number = :accountNumber " +
+            "RETURNING balance", nativeQuery = true)
+    Optional<Long> creditBalance(@Param("accountNumber") Integer accountNumber,
+                                   @Param("amount") long amount);
+
+    // Atomic debit guarded by the balance check; returns the new balance, or empty if the
+    // account does not exist or does not hold enough funds
+    @Query(value = "UPDATE accounts SET balance = balance - :amount WHERE account_number = :accountNumber " +
+            "AND balance >= :amount RETURNING balance", nativeQuery = true)
+    Optional<Long> debitBalance(@Param("accountNumber") Integer accountNumber,
+                                  @Param("amount") long amount);
+
+    // Row lock (SELECT ... FOR UPDATE) held until the surrounding transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BankAccount b WHERE b.accountNumber = :accountNumber")
+    Optional<BankAccount> findByIdForUpdate(@Param("accountNumber") Integer accountNumber);
+
+    // Locks several rows in ascending account-number order, the same order single transfers use
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BankAccount b WHERE b.accountNumber IN :accountNumbers ORDER BY b.accountNumber ASC")
+    List<BankAccount> findAllByIdForUpdate(@Param("accountNumbers") Collection<Integer> accountNumbers);
+
+    @Query("SELECT b.accountNumber FROM BankAccount b WHERE b.accountNumber IN :accountNumbers")
+    List<Integer> findExistingAccountNumbers(@Param("accountNumbers") Collection<Integer> accountNumbers);
+
+    @Query("SELECT new com.mbank.model.AccountMetadata(b.accountNumber, b.accountHolder, b.email) " +
+            "FROM BankAccount b WHERE b.accountNumber = :accountNumber")
+    Optional<AccountMetadata> findMetadata(@Param("accountNumber") Integer accountNumber);
+
+    // Name contains-search ranked by trigram similarity (idx_accounts_holder_trgm).
+    // :pattern is '%term%' with LIKE wildcards escaped; :term is the lower-cased search text.
+    @Query("SELECT new com.mbank.model.AccountMetadata(b.accountNumber, b.accountHolder, b.email) " +
+            "FROM BankAccount b WHERE lower(b.accountHolder) LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY function('similarity', lower(b.accountHolder), :term) DESC, b.accountNumber")
+    Slice<AccountMetadata> searchByHolderContaining(@Param("pattern") String pattern,
+                                                    @Param("term") String term,
+                                                    Pageable pageable);
+
+    // Name or email prefix search (idx_accounts_holder_prefix / idx_accounts_email_prefix); :pattern is 'term%'
+    @Query("SELECT new com.mbank.model.AccountMetadata(b.accountNumber, b.accountHolder, b.email) " +
+            "FROM BankAccount b WHERE lower(b.accountHolder) LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY lower(b.accountHolder), b.accountNumber")
+    Slice<AccountMetadata> searchByHolderPrefix(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query("SELECT new com.mbank.model.AccountMetadata(b.accountNumber, b.accountHolder, b.email) " +
+            "FROM BankAccount b WHERE lower(b.email) LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY lower(b.email), b.accountNumber")
+    Slice<AccountMetadata> searchByEmailPrefix(@Param("pattern") String pattern, Pageable pageable);
+
+    // Admin listing, keyset-paginated on account_number. Never loads the password column.
+    @Query("SELECT new com.mbank.model.AccountSummary(b.accountNumber, b.accountHolder, b.email, b.balance, b.createdAt) " +
+            "FROM BankAccount b WHERE b.accountNumber > :afterAccountNumber " +
+            "AND b.balance BETWEEN :minBalance AND :maxBalance " +
+            "ORDER BY b.accountNumber ASC")
+    List<AccountSummary> findSummaryPage(@Param("afterAccountNumber") Integer afterAccountNumber,
+                                         @Param("minBalance") long minBalance,
+                                         @Param("maxBalance") long maxBalance,
+                                         Pageable pageable);
+
+    // Admin listing, largest balance first, keyset-paginated on (balance DESC, account_number)
+    @Query("SELECT new com.mbank.model.AccountSummary(b.accountNumber, b.accountHolder, b.email, b.balance, b.createdAt) " +
+            "FROM BankAccount b WHERE b.balance BETWEEN :minBalance AND :maxBalance " +
+            "AND (b.balance < :cursorBalance OR (b.balance = :cursorBalance AND b.accountNumber > :cursorAccountNumber)) " +
+            "ORDER BY b.balance DESC, b.accountNumber ASC")
+    List<AccountSummary> findSummaryPageByBalance(@Param("cursorBalance") long cursorBalance,
+                                                  @Param("cursorAccountNumber") Integer cursorAccountNumber,
+                                                  @Param("minBalance") long minBalance,
+                                                  @Param("maxBalance") long maxBalance,
+                                                  Pageable pageable);
+
+    // Admin export cursors, fetched 500 rows at a time. Must be consumed inside a transaction.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.mbank.model.AccountSummary(b.accountNumber, b.accountHolder, b.email, b.balance, b.createdAt) " +
+            "FROM BankAccount b WHERE b.balance BETWEEN :minBalance AND :maxBalance " +
+            "ORDER BY b.accountNumber ASC")
+    Stream<AccountSummary> streamSummaries(@Param("minBalance") long minBalance,
+                                           @Param("maxBalance") long maxBalance);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.mbank.model.AccountSummary(b.accountNumber, b.accountHolder, b.email, b.balance, b.createdAt) " +
+            "FROM BankAccount b WHERE b.balance BETWEEN :minBalance AND :maxBalance " +
+            "ORDER BY b.balance DESC, b.accountNumber ASC")
+    Stream<AccountSummary> streamSummariesByBalance(@Param("minBalance") long minBalance,
+                                                    @Param("maxBalance") long maxBalance);
+
+    // Reserves the block [value, value + AccountNumberAllocator.BLOCK_SIZE)
+    @Query(value = "SELECT nextval('account_number_seq')", nativeQuery = true)
+    long reserveAccountNumberBlock();
+
+    @Query("SELECT b.balance FROM BankAccount b WHERE b.accountNumber = :accountNumber")
+    Optional<Long> findBalance(@Param("accountNumber") Integer accountNumber);
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.mbank.repository;
+
+import com.mbank.model.DailyAccountRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyAccountRollupRepository extends JpaRepository<DailyAccountRollup, DailyAccountRollup.Key> {
+
+    // Add deltas to one (account, day, type) row, creating it on first use
+    @Modifying
+    @Query(value = "INSERT INTO daily_account_rollups (account_number, rollup_date, transaction_type, " +
+            "tx_count, amount_total, debit_total, credit_total, fee_total) " +
+            "VALUES (:accountNumber, :rollupDate, :transactionType, :count, :amount, :debits, :credits, :fees) " +
+            "ON CONFLICT (account_number, rollup_date, transaction_type) DO UPDATE SET " +
+            "tx_count = daily_account_rollups.tx_count + EXCLUDED.tx_count, " +
+            "amount_total = daily_account_rollups.amount_total + EXCLUDED.amount_total, " +
+            "debit_total = daily_account_rollups.debit_total + EXCLUDED.debit_total, " +
+            "credit_total = daily_account_rollups.credit_total + EXCLUDED.credit_total, " +
+            "fee_total = daily_account_rollups.fee_total + EXCLUDED.fee_total",
+            nativeQuery = true)
+    void addToRollup(@Param("accountNumber") Integer accountNumber,
+                     @Param("rollupDate") LocalDate rollupDate,
+                     @Param("transactionType") String transactionType,
+                     @Param("count") long count,
+                     @Param("amount") long amount,
+                     @Param("debits") long debits,
+                     @Param("credits") long credits,
+                     @Param("fees") long fees);
+
+    // Per-type totals over whole days, in the same column layout as TransactionRepository.summarizeByType
+    @Query("SELECT r.transactionType, SUM(r.transactionCount), SUM(r.amountTotal), " +
+            "SUM(r.debitTotal), SUM(r.creditTotal), SUM(r.feeTotal) " +
+            "FROM DailyAccountRollup r WHERE r.accountNumber = :accountNumber " +
+            "AND r.rollupDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY r.transactionType")
+    List<Object[]> summarizeByType(@Param("accountNumber") Integer accountNumber,
+                                   @Param("fromDate") LocalDate fromDate,
+                                   @Param("toDate") LocalDate toDate);
+
+    // Blocks addToRollup callers until the surrounding transaction ends, and waits for those
+    // already in flight to commit. Take it before rebuildRollups so the rebuild cannot overwrite
+    // an increment it did not see.
+    @Modifying
+    @Query(value = "LOCK TABLE daily_account_rollups IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockAgainstUpserts();
+
+    // Recompute every rollup row for journal rows in [from, to) from scratch. Idempotent.
+    // Call inside a transaction that holds lockAgainstUpserts.
+    @Modifying
+    @Query(value = "INSERT INTO daily_account_rollups (account_number, rollup_date, transaction_type, " +
+            "tx_count, amount_total, debit_total, credit_total, fee_total) " +
+            "SELECT account_number, CAST(transaction_date AS date), transaction_type, COUNT(*), " +
+            "COALESCE(SUM(amount), 0), " +
+            "COALESCE(SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), 0), " +
+            "COALESCE(SUM(fee), 0) " +
+            "FROM transactions WHERE transaction_date >= :fromDate AND transaction_date < :toDate " +
+            "GROUP BY account_number, CAST(transaction_date AS date), transaction_type " +
+            "ON CONFLICT (account_number, rollup_date, transaction_type) DO UPDATE SET " +
+            "tx_count = EXCLUDED.tx_count, " +
+            "amount_total = EXCLUDED.amount_total, " +
+            "debit_total = EXCLUDED.debit_total, " +
+            "credit_total = EXCLUDED.credit_total, " +
+            "fee_total = EXCLUDED.fee_total",
+            nativeQuery = true)
+    int rebuildRollups(@Param("fromDate") LocalDateTime fromDate,
+                       @Param("toDate") LocalDateTime toDate);
+}
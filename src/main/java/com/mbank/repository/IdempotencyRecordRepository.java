@@ -0,0 +1,51 @@
+package com.mbank.repository;
+
+import com.mbank.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    // Returns 1 if this call claimed the key, 0 if it was already used. Blocks while another
+    // uncommitted transaction holds the same key.
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (account_number, idempotency_key, operation, amount, " +
+            "to_account, created_at) VALUES (:accountNumber, :idempotencyKey, :operation, :amount, " +
+            ":toAccount, :createdAt) ON CONFLICT (account_number, idempotency_key) DO NOTHING",
+            nativeQuery = true)
+    int claim(@Param("accountNumber") Integer accountNumber,
+              @Param("idempotencyKey") String idempotencyKey,
+              @Param("operation") String operation,
+              @Param("amount") long amount,
+              @Param("toAccount") Integer toAccount,
+              @Param("createdAt") LocalDateTime createdAt);
+
+    // Stores the outcome on a key claimed in the current transaction
+    @Modifying
+    @Query(value = "UPDATE idempotency_keys SET old_balance = :oldBalance, new_balance = :newBalance, " +
+            "fee = :fee, total_debit = :totalDebit, to_account_holder = :toAccountHolder, " +
+            "transaction_id = :transactionId, transaction_date = :transactionDate " +
+            "WHERE account_number = :accountNumber AND idempotency_key = :idempotencyKey",
+            nativeQuery = true)
+    void complete(@Param("accountNumber") Integer accountNumber,
+                  @Param("idempotencyKey") String idempotencyKey,
+                  @Param("oldBalance") Long oldBalance,
+                  @Param("newBalance") Long newBalance,
+                  @Param("fee") Long fee,
+                  @Param("totalDebit") Long totalDebit,
+                  @Param("toAccountHolder") String toAccountHolder,
+                  @Param("transactionId") String transactionId,
+                  @Param("transactionDate") LocalDateTime transactionDate);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,13 +1,20 @@
 package com.mbank.repository;
 
+import com.mbank.model.StatementRow;
 import com.mbank.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -36,10 +43,125 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
+    // ============ JOURNAL REPLAY (see LedgerSnapshotService) ============
+
+    // Newest journal row at or before a point in time (pass PageRequest.of(0, 1))
+    @Query("SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionDate <= :asOf " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findLatestAtOrBefore(@Param("accountNumber") Integer accountNumber,
+                                           @Param("asOf") LocalDateTime asOf,
+                                           Pageable limit);
+
+    // Row count and net balance change of the rows after (fromDate, fromId), exclusive, up to
+    // (toDate, toId), inclusive. A row moves the balance by its amount less its fee.
+    // The plain BETWEEN repeats what the OR pairs imply; PostgreSQL cannot derive index bounds from an
+    // OR, so without it the scan would read every row of the account and filter, snapshot or not.
+    @Query("SELECT COUNT(t), COALESCE(SUM(t.amount - t.fee), 0L) " +
+            "FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionDate BETWEEN :fromDate AND :toDate " +
+            "AND (t.transactionDate > :fromDate OR (t.transactionDate = :fromDate AND t.id > :fromId)) " +
+            "AND (t.transactionDate < :toDate OR (t.transactionDate = :toDate AND t.id <= :toId))")
+    List<Object[]> sumJournalBetween(@Param("accountNumber") Integer accountNumber,
+                                     @Param("fromDate") LocalDateTime fromDate,
+                                     @Param("fromId") Long fromId,
+                                     @Param("toDate") LocalDateTime toDate,
+                                     @Param("toId") Long toId);
+
+    // ============ KEYSET (CURSOR) PAGINATION ON (transactionDate, id) ============
+    // Statement pages select only the displayed columns into StatementRow; nothing is managed or dirty-checked.
+
+    String STATEMENT_ROW = "SELECT new com.mbank.model.StatementRow(t.id, t.transactionDate, t.transactionType, " +
+            "t.amount, t.fee, t.toAccount, t.description, t.transactionId) FROM Transaction t ";
+
+    // Rows strictly older than the cursor, newest first
+    @Query(STATEMENT_ROW + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+            "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<StatementRow> findPageOlderThan(@Param("accountNumber") Integer accountNumber,
+                                         @Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate,
+                                         @Param("cursorDate") LocalDateTime cursorDate,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable limit);
+
+    // Rows strictly newer than the cursor, oldest first (caller reverses)
+    @Query(STATEMENT_ROW + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+            "AND (t.transactionDate > :cursorDate OR (t.transactionDate = :cursorDate AND t.id > :cursorId)) " +
+            "ORDER BY t.transactionDate ASC, t.id ASC")
+    List<StatementRow> findPageNewerThan(@Param("accountNumber") Integer accountNumber,
+                                         @Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate,
+                                         @Param("cursorDate") LocalDateTime cursorDate,
+                                         @Param("cursorId") Long cursorId,
+                                         Pageable limit);
+
+    // Same pages restricted to a set of transaction types, still one query and already ordered
+    @Query(STATEMENT_ROW + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionType IN :transactionTypes " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+            "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<StatementRow> findPageOlderThanByTypes(@Param("accountNumber") Integer accountNumber,
+                                                @Param("transactionTypes") Collection<String> transactionTypes,
+                                                @Param("startDate") LocalDateTime startDate,
+                                                @Param("endDate") LocalDateTime endDate,
+                                                @Param("cursorDate") LocalDateTime cursorDate,
+                                                @Param("cursorId") Long cursorId,
+                                                Pageable limit);
+
+    @Query(STATEMENT_ROW + "WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionType IN :transactionTypes " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+            "AND (t.transactionDate > :cursorDate OR (t.transactionDate = :cursorDate AND t.id > :cursorId)) " +
+            "ORDER BY t.transactionDate ASC, t.id ASC")
+    List<StatementRow> findPageNewerThanByTypes(@Param("accountNumber") Integer accountNumber,
+                                                @Param("transactionTypes") Collection<String> transactionTypes,
+                                                @Param("startDate") LocalDateTime startDate,
+                                                @Param("endDate") LocalDateTime endDate,
+                                                @Param("cursorDate") LocalDateTime cursorDate,
+                                                @Param("cursorId") Long cursorId,
+                                                Pageable limit);
+
+    // Per-type totals for a date range (money in cents): type, count, sum(amount), sum of debits, sum of credits, sum(fee)
+    @Query("SELECT t.transactionType, COUNT(t), COALESCE(SUM(t.amount), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.amount < 0 THEN -t.amount ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN t.amount > 0 THEN t.amount ELSE 0L END), 0L), " +
+            "COALESCE(SUM(t.fee), 0L) " +
+            "FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.transactionType")
+    List<Object[]> summarizeByType(@Param("accountNumber") Integer accountNumber,
+                                   @Param("startDate") LocalDateTime startDate,
+                                   @Param("endDate") LocalDateTime endDate);
+
+    // Export cursor: rows are fetched from the database 500 at a time instead of all at once.
+    // Must be consumed inside a transaction (Postgres only honours the fetch size without autocommit).
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+            "ORDER BY t.transactionDate ASC, t.id ASC")
+    Stream<Transaction> streamForExport(@Param("accountNumber") Integer accountNumber,
+                                        @Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT MIN(t.transactionDate) FROM Transaction t")
+    LocalDateTime findOldestTransactionDate();
+
     boolean existsByTransactionId(String transactionId);
 
     // Get latest transaction for account
     @Query("SELECT t FROM Transaction t WHERE t.accountNumber = :accountNumber " +
             "ORDER BY t.transactionDate DESC LIMIT 1")
     Transaction findTopByAccountNumberOrderByTransactionDateDesc(@Param("accountNumber") Integer accountNumber);
+
+    // Id of the latest row only; the change marker behind the statement and dashboard ETags
+    @Query("SELECT t.id FROM Transaction t WHERE t.accountNumber = :accountNumber " +
+            "ORDER BY t.transactionDate DESC, t.id DESC LIMIT 1")
+    Long findLatestTransactionId(@Param("accountNumber") Integer accountNumber);
 }
\ No newline at end of file
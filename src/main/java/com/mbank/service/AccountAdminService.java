@@ -0,0 +1,146 @@
+package com.mbank.service;
+
+import com.mbank.model.AccountSummary;
+import com.mbank.model.Money;
+import com.mbank.repository.BankAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Admin view of all accounts: keyset-paginated listing and a streamed CSV export.
+ *
+ * Both read AccountSummary projections (no password column) and never hold more than one page,
+ * or one fetch batch, in memory, whatever the size of the accounts table.
+ */
+@Service
+public class AccountAdminService {
+
+    public static final String SORT_ACCOUNT_NUMBER = "accountNumber";
+    public static final String SORT_BALANCE = "balance";
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    // One listing page. Pass the nextCursor of the previous page as "after" to continue.
+    // Balance bounds are in cents; null means unbounded.
+    @Transactional(readOnly = true)
+    public AccountPage listAccounts(String sort, Long minBalance, Long maxBalance, String after, Integer size) {
+        boolean byBalance = SORT_BALANCE.equals(sort);
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        long min = minBalance != null ? minBalance : Long.MIN_VALUE;
+        long max = maxBalance != null ? maxBalance : Long.MAX_VALUE;
+        AccountCursor cursor = AccountCursor.decode(after);
+
+        List<AccountSummary> rows;
+        if (byBalance) {
+            rows = cursor != null
+                    ? accountRepository.findSummaryPageByBalance(cursor.balance, cursor.accountNumber, min, max, pageable)
+                    : accountRepository.findSummaryPageByBalance(Long.MAX_VALUE, Integer.MIN_VALUE, min, max, pageable);
+        } else {
+            rows = accountRepository.findSummaryPage(cursor != null ? cursor.accountNumber : Integer.MIN_VALUE,
+                    min, max, pageable);
+        }
+
+        AccountPage page = new AccountPage();
+        page.sort = byBalance ? SORT_BALANCE : SORT_ACCOUNT_NUMBER;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            page.nextCursor = AccountCursor.of(rows.get(rows.size() - 1)).encode();
+        }
+        page.accounts = rows;
+        return page;
+    }
+
+    // CSV export of every matching account, streamed from a database cursor
+    @Transactional(readOnly = true)
+    public void writeCsv(String sort, Long minBalance, Long maxBalance, OutputStream out) {
+        long min = minBalance != null ? minBalance : Long.MIN_VALUE;
+        long max = maxBalance != null ? maxBalance : Long.MAX_VALUE;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        try (Stream<AccountSummary> rows = SORT_BALANCE.equals(sort)
+                ? accountRepository.streamSummariesByBalance(min, max)
+                : accountRepository.streamSummaries(min, max)) {
+            writer.write("account_number,account_holder,email,balance,created_at\n");
+
+            Iterator<AccountSummary> it = rows.iterator();
+            while (it.hasNext()) {
+                AccountSummary account = it.next();
+                writer.write(String.valueOf(account.getAccountNumber()));
+                writer.write(',');
+                writer.write(StatementExportService.csv(account.getAccountHolder()));
+                writer.write(',');
+                writer.write(StatementExportService.csv(account.getEmail()));
+                writer.write(',');
+                writer.write(Money.format(account.getBalance()));
+                writer.write(',');
+                writer.write(account.getCreatedAt() != null ? account.getCreatedAt().toString() : "");
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Listing page with the keyset token for the next page (null on the last page)
+    public static class AccountPage {
+        public List<AccountSummary> accounts;
+        public String sort;
+        public String nextCursor;
+    }
+
+    // Position of a row in either listing order, encoded as an opaque URL-safe token
+    static class AccountCursor {
+        final long balance;
+        final int accountNumber;
+
+        AccountCursor(long balance, int accountNumber) {
+            this.balance = balance;
+            this.accountNumber = accountNumber;
+        }
+
+        static AccountCursor of(AccountSummary account) {
+            return new AccountCursor(account.getBalance(), account.getAccountNumber());
+        }
+
+        String encode() {
+            String raw = balance + "|" + accountNumber;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Returns null for a missing or malformed token, which means "first page"
+        static AccountCursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new AccountCursor(Long.parseLong(raw.substring(0, separator)),
+                        Integer.parseInt(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mbank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mbank.model.AccountMetadata;
+import com.mbank.repository.BankAccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Read-through cache of account metadata (holder name, email, existence).
+ *
+ * Bounded by size and expired by TTL. Balances are deliberately not cached here; they are
+ * always read fresh. Unknown account numbers are not cached, so a new registration is visible
+ * immediately. Hit, miss, load and eviction counts are published as the {@code cache.*} metrics
+ * tagged {@code cache=account_metadata}.
+ */
+@Component
+public class AccountMetadataCache {
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    private final boolean enabled;
+    private final Cache<Integer, AccountMetadata> cache;
+
+    public AccountMetadataCache(@Value("${mbank.account-cache.enabled:true}") boolean enabled,
+                                @Value("${mbank.account-cache.maximum-size:10000}") long maximumSize,
+                                @Value("${mbank.account-cache.ttl-seconds:300}") long ttlSeconds,
+                                MeterRegistry registry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "account_metadata");
+    }
+
+    public Optional<AccountMetadata> get(Integer accountNumber) {
+        if (!enabled) {
+            return accountRepository.findMetadata(accountNumber);
+        }
+        return Optional.ofNullable(cache.get(accountNumber,
+                key -> accountRepository.findMetadata(key).orElse(null)));
+    }
+
+    // Call when the account row is written. Inside a transaction the entry is dropped again once
+    // it completes: a read in between still sees the old committed row and may have cached it.
+    public void invalidate(Integer accountNumber) {
+        cache.invalidate(accountNumber);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(accountNumber);
+                }
+            });
+        }
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,61 @@
+package com.mbank.service;
+
+import com.mbank.repository.BankAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out account numbers from blocks reserved with one nextval() on account_number_seq.
+ *
+ * Within a block numbers come from an AtomicInteger, so registrations don't contend and don't
+ * touch the database; only the thread that exhausts a block reserves the next one. Numbers left
+ * in a block when the instance stops are skipped, never reused, so each instance gets its own
+ * disjoint range and no uniqueness probe is needed.
+ */
+@Component
+public class AccountNumberAllocator {
+
+    // Must match INCREMENT BY of account_number_seq (V3__account_number_sequence.sql)
+    static final int BLOCK_SIZE = 100;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    private volatile Block block;
+
+    public Integer next() {
+        while (true) {
+            Block current = block;
+            if (current != null) {
+                int candidate = current.next.getAndIncrement();
+                if (candidate < current.end) {
+                    return candidate;
+                }
+            }
+            reserveBlock(current);
+        }
+    }
+
+    private synchronized void reserveBlock(Block exhausted) {
+        if (block != exhausted) {
+            return; // another thread already reserved a fresh block
+        }
+        long start = accountRepository.reserveAccountNumberBlock();
+        if (start + BLOCK_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Account number space exhausted");
+        }
+        block = new Block((int) start, (int) start + BLOCK_SIZE);
+    }
+
+    private static final class Block {
+        final AtomicInteger next;
+        final int end;
+
+        Block(int start, int end) {
+            this.next = new AtomicInteger(start);
+            this.end = end;
+        }
+    }
+}
@@ -1,47 +1,73 @@
 package com.mbank.service;
 
+import com.mbank.model.AccountMetadata;
 import com.mbank.model.BankAccount;
+import com.mbank.model.Money;
+import com.mbank.model.Transaction;
 import com.mbank.repository.BankAccountRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
 
 @Service
 public class BankAccountService {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     @Autowired
     private BankAccountRepository accountRepository;
 
     @Autowired
     private TransactionService transactionService;
 
-    // Generate unique account number
-    public Integer generateAccountNumber() {
-        Integer accountNumber = 100000 + (int)(Math.random() * 900000);
+    @Autowired
+    private AccountMetadataCache metadataCache;
 
-        // Ensure uniqueness
-        while (accountRepository.existsById(accountNumber)) {
-            accountNumber = 100000 + (int)(Math.random() * 900000);
-        }
+    @Autowired
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-        return accountNumber;
+    // Present only when mbank.ledger.in-memory.enabled=true
+    @Autowired(required = false)
+    private LedgerEngine ledgerEngine;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Generate unique account number (from a pre-reserved block, no uniqueness probe needed)
+    public Integer generateAccountNumber() {
+        return accountNumberAllocator.next();
     }
 
     // Register new account
     @Transactional
     public BankAccount registerAccount(String accountHolder, String email, String password) {
         if (accountRepository.existsByEmail(email)) {
-            throw new RuntimeException("Email already registered");
+            throw new BankingException(BankingException.Reason.DUPLICATE_EMAIL, "Email already registered");
         }
 
         Integer accountNumber = generateAccountNumber();
         BankAccount account = new BankAccount();
         account.setAccountNumber(accountNumber);
         account.setAccountHolder(accountHolder);
-        account.setBalance(0.0);
+        account.setBalance(0);
         account.setEmail(email);
         account.setPassword(password);
 
@@ -51,9 +77,10 @@ public class BankAccountService {
         transactionService.recordTransaction(
                 accountNumber,
                 "INITIAL_DEPOSIT",
-                0.0,
+                0,
                 null,
-                "Account opening"
+                "Account opening",
+                0L
         );
 
         return savedAccount;
@@ -69,154 +96,273 @@ public class BankAccountService {
         return accountRepository.findById(accountNumber);
     }
 
+    // Current balance only, read fresh
+    public long getBalance(Integer accountNumber) {
+        return accountRepository.findBalance(accountNumber)
+                .orElseThrow(() -> new BankingException(BankingException.Reason.NOT_FOUND, "Account not found"));
+    }
+
     // Get account by email
     public Optional<BankAccount> getAccountByEmail(String email) {
         return accountRepository.findByEmail(email);
     }
 
-    // Enhanced Deposit with transaction recording
-    @Transactional
-    public BankAccount deposit(Integer accountNumber, Double amount) {
-        BankAccount account = accountRepository.findById(accountNumber)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
-
-        // Validate
-        if (amount <= 0) {
-            throw new RuntimeException("Amount must be greater than zero!");
+    // Enhanced Deposit with transaction recording.
+    // The balance is credited in a single UPDATE ... RETURNING, so no read of the row is needed.
+    // Not @Transactional: the in-memory ledger waits for its group commit without holding a connection.
+    public BalanceChange deposit(Integer accountNumber, long amount) {
+        if (ledgerEngine != null) {
+            return ledgerEngine.deposit(accountNumber, amount);
         }
+        return transactionTemplate.execute(status -> depositInDatabase(accountNumber, amount));
+    }
 
-        if (amount > 100000) {
-            throw new RuntimeException("Maximum deposit is R100,000 per transaction!");
-        }
+    private BalanceChange depositInDatabase(Integer accountNumber, long amount) {
+        // Validate
+        validateDeposit(amount);
 
         // Perform deposit
-        Double oldBalance = account.getBalance();
-        account.setBalance(oldBalance + amount);
-        BankAccount updatedAccount = accountRepository.save(account);
+        long newBalance = accountRepository.creditBalance(accountNumber, amount)
+                .orElseThrow(() -> new BankingException(BankingException.Reason.NOT_FOUND, "Account not found"));
 
         // Record transaction
-        transactionService.recordTransaction(
+        Transaction transaction = transactionService.recordTransaction(
                 accountNumber,
                 "DEPOSIT",
                 amount,
                 null,
-                "Deposit to account"
+                "Deposit to account",
+                newBalance
         );
 
-        return updatedAccount;
+        return new BalanceChange(newBalance - amount, newBalance, transaction);
     }
 
-    // Enhanced Withdraw with transaction recording
-    @Transactional
-    public BankAccount withdraw(Integer accountNumber, Double amount) {
-        BankAccount account = accountRepository.findById(accountNumber)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
-
-        // Validate
-        if (amount <= 0) {
-            throw new RuntimeException("Withdrawal amount must be greater than zero!");
-        }
-
-        if (amount > 50000) {
-            throw new RuntimeException("Maximum withdrawal is R50,000 per transaction!");
+    // Enhanced Withdraw with transaction recording.
+    // The funds check and the debit are one conditional UPDATE, so concurrent withdrawals
+    // can never both pass the check against the same balance.
+    public BalanceChange withdraw(Integer accountNumber, long amount) {
+        if (ledgerEngine != null) {
+            return ledgerEngine.withdraw(accountNumber, amount);
         }
+        return transactionTemplate.execute(status -> withdrawInDatabase(accountNumber, amount));
+    }
 
-        if (amount > account.getBalance()) {
-            throw new RuntimeException("Insufficient funds! Available: R" + account.getBalance());
-        }
+    private BalanceChange withdrawInDatabase(Integer accountNumber, long amount) {
+        // Validate
+        validateWithdrawal(amount);
 
         // Perform withdrawal
-        Double oldBalance = account.getBalance();
-        account.setBalance(oldBalance - amount);
-        BankAccount updatedAccount = accountRepository.save(account);
+        Optional<Long> debited = accountRepository.debitBalance(accountNumber, amount);
+        if (debited.isEmpty()) {
+            // Only the failure path pays for a second read, to tell the two reasons apart
+            long balance = accountRepository.findBalance(accountNumber)
+                    .orElseThrow(() -> new BankingException(BankingException.Reason.NOT_FOUND, "Account not found"));
+            throw insufficientFunds(balance);
+        }
+        long newBalance = debited.get();
 
         // Record transaction (negative amount for withdrawal)
-        transactionService.recordTransaction(
+        Transaction transaction = transactionService.recordTransaction(
                 accountNumber,
                 "WITHDRAWAL",
                 -amount,
                 null,
-                "Withdrawal from account"
+                "Withdrawal from account",
+                newBalance
         );
 
-        return updatedAccount;
+        return new BalanceChange(newBalance + amount, newBalance, transaction);
     }
 
-    // ============ UPDATED TRANSFER METHOD ============
-    // Transfer (with transaction management and fee calculation)
-    @Transactional
-    public TransferResult transfer(Integer fromAccountNumber, Integer toAccountNumber, Double amount, String description) {
-        BankAccount fromAccount = accountRepository.findById(fromAccountNumber)
-                .orElseThrow(() -> new RuntimeException("From account not found"));
-
-        BankAccount toAccount = accountRepository.findById(toAccountNumber)
-                .orElseThrow(() -> new RuntimeException("To account not found"));
+    // Deposit/withdrawal result DTO (balances in cents)
+    public static class BalanceChange {
+        public long oldBalance;
+        public long newBalance;
+        public String transactionId;
+        public LocalDateTime transactionDate;
 
-        // Validate
-        if (amount <= 0) {
-            throw new RuntimeException("Transfer amount must be positive");
+        public BalanceChange(long oldBalance, long newBalance, Transaction transaction) {
+            this.oldBalance = oldBalance;
+            this.newBalance = newBalance;
+            this.transactionId = transaction.getTransactionId();
+            this.transactionDate = transaction.getTransactionDate();
         }
 
-        if (amount > 100000) {
-            throw new RuntimeException("Maximum transfer amount is R100,000");
+        public BalanceChange(long oldBalance, long newBalance, String transactionId, LocalDateTime transactionDate) {
+            this.oldBalance = oldBalance;
+            this.newBalance = newBalance;
+            this.transactionId = transactionId;
+            this.transactionDate = transactionDate;
         }
+    }
 
-        if (fromAccountNumber.equals(toAccountNumber)) {
-            throw new RuntimeException("Cannot transfer to your own account");
+    // ============ UPDATED TRANSFER METHOD ============
+    // Transfer (with transaction management and fee calculation).
+    // Both rows are locked with SELECT ... FOR UPDATE in ascending account-number order, so two
+    // opposite transfers between the same accounts queue up instead of deadlocking. Balances and
+    // both journal legs are written in this one transaction.
+    public TransferResult transfer(Integer fromAccountNumber, Integer toAccountNumber, long amount, String description) {
+        if (ledgerEngine != null) {
+            return ledgerEngine.transfer(fromAccountNumber, toAccountNumber, amount, description);
         }
+        return transactionTemplate.execute(status ->
+                transferInDatabase(fromAccountNumber, toAccountNumber, amount, description));
+    }
 
-        // Calculate fee (R10 for transfers over R1000)
-        double fee = amount > 1000 ? 10 : 0;
-        double totalDebit = amount + fee;
+    private TransferResult transferInDatabase(Integer fromAccountNumber, Integer toAccountNumber, long amount,
+                                              String description) {
+        // Validate and calculate fee
+        long fee = validateTransfer(fromAccountNumber, toAccountNumber, amount);
+        long totalDebit = amount + fee;
 
-        if (fromAccount.getBalance() < totalDebit) {
-            throw new RuntimeException("Insufficient funds. Available: R" + fromAccount.getBalance() +
-                    ", Required: R" + totalDebit + " (including R" + fee + " fee)");
+        // Reject unknown recipients from the metadata cache before taking any row locks
+        if (!accountExists(toAccountNumber)) {
+            throw new BankingException(BankingException.Reason.NOT_FOUND,
+                    "Recipient account #" + toAccountNumber + " not found!");
         }
 
-        // Perform transfer
-        fromAccount.setBalance(fromAccount.getBalance() - totalDebit);
-        toAccount.setBalance(toAccount.getBalance() + amount);
+        // Lock both accounts, lowest account number first
+        BankAccount fromAccount;
+        BankAccount toAccount;
+        if (fromAccountNumber < toAccountNumber) {
+            fromAccount = lockAccount(fromAccountNumber, "Account not found");
+            toAccount = lockAccount(toAccountNumber, "Recipient account #" + toAccountNumber + " not found!");
+        } else {
+            toAccount = lockAccount(toAccountNumber, "Recipient account #" + toAccountNumber + " not found!");
+            fromAccount = lockAccount(fromAccountNumber, "Account not found");
+        }
+
+        long oldBalance = fromAccount.getBalance();
+        checkTransferFunds(oldBalance, totalDebit, fee);
 
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
+        // Perform transfer (managed entities, flushed on commit)
+        fromAccount.setBalance(oldBalance - totalDebit);
+        toAccount.setBalance(toAccount.getBalance() + amount);
 
-        // Generate transaction ID
-        String transactionId = "TRF" + System.currentTimeMillis() + (int)(Math.random() * 1000);
+        // Record both legs in one batched insert
+        Transaction debit = transactionService.newTransaction(
+                fromAccountNumber,
+                "TRANSFER_DEBIT",
+                -amount,
+                toAccountNumber.toString(),
+                description != null ? description : "Transfer to account #" + toAccountNumber,
+                fee,
+                transactionService.generateTransactionId("TRF")
+        );
+        Transaction credit = transactionService.newTransaction(
+                toAccountNumber,
+                "TRANSFER_CREDIT",
+                amount,
+                fromAccountNumber.toString(),
+                description != null ? description : "Transfer from account #" + fromAccountNumber,
+                0,
+                transactionService.generateTransactionId("TRF")
+        );
+        debit.setBalanceAfter(fromAccount.getBalance());
+        credit.setBalanceAfter(toAccount.getBalance());
+        transactionService.recordTransactions(List.of(debit, credit));
 
-        // Record transactions for both accounts (will be saved by controller)
         TransferResult result = new TransferResult();
         result.fromAccount = fromAccount;
         result.toAccount = toAccount;
+        result.toAccountHolder = toAccount.getAccountHolder();
         result.fee = fee;
         result.totalDebit = totalDebit;
-        result.transactionId = transactionId;
+        result.oldBalance = oldBalance;
+        result.newBalance = fromAccount.getBalance();
+        result.transactionId = debit.getTransactionId();
+        result.transactionDate = debit.getTransactionDate();
         result.description = description;
 
         return result;
     }
 
-    // Transfer result DTO
+    private BankAccount lockAccount(Integer accountNumber, String notFoundMessage) {
+        return accountRepository.findByIdForUpdate(accountNumber)
+                .orElseThrow(() -> new BankingException(BankingException.Reason.NOT_FOUND, notFoundMessage));
+    }
+
+    // ============ VALIDATION (shared with LedgerEngine) ============
+    // All amounts and limits are in cents.
+
+    static final long MAX_DEPOSIT = 100_000 * Money.CENTS_PER_RAND;
+    static final long MAX_WITHDRAWAL = 50_000 * Money.CENTS_PER_RAND;
+    static final long MAX_TRANSFER = 100_000 * Money.CENTS_PER_RAND;
+    static final long TRANSFER_FEE_THRESHOLD = 1_000 * Money.CENTS_PER_RAND;
+    static final long TRANSFER_FEE = 10 * Money.CENTS_PER_RAND;
+
+    static void validateDeposit(long amount) {
+        if (amount <= 0) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, "Amount must be greater than zero!");
+        }
+
+        if (amount > MAX_DEPOSIT) {
+            throw new BankingException(BankingException.Reason.LIMIT_EXCEEDED, "Maximum deposit is R100,000 per transaction!");
+        }
+    }
+
+    static void validateWithdrawal(long amount) {
+        if (amount <= 0) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, "Withdrawal amount must be greater than zero!");
+        }
+
+        if (amount > MAX_WITHDRAWAL) {
+            throw new BankingException(BankingException.Reason.LIMIT_EXCEEDED, "Maximum withdrawal is R50,000 per transaction!");
+        }
+    }
+
+    static BankingException insufficientFunds(long balance) {
+        return new BankingException(BankingException.Reason.INSUFFICIENT_FUNDS,
+                "Insufficient funds! Available: R" + Money.format(balance));
+    }
+
+    // Returns the fee for a valid transfer request
+    static long validateTransfer(Integer fromAccountNumber, Integer toAccountNumber, long amount) {
+        if (amount <= 0) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, "Transfer amount must be greater than zero!");
+        }
+
+        if (amount > MAX_TRANSFER) {
+            throw new BankingException(BankingException.Reason.LIMIT_EXCEEDED, "Maximum transfer is R100,000 per transaction!");
+        }
+
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, "Cannot transfer to your own account!");
+        }
+
+        // Calculate fee (R10 for transfers over R1000)
+        return amount > TRANSFER_FEE_THRESHOLD ? TRANSFER_FEE : 0;
+    }
+
+    static void checkTransferFunds(long balance, long totalDebit, long fee) {
+        if (balance < totalDebit) {
+            throw new BankingException(BankingException.Reason.INSUFFICIENT_FUNDS, String.format(
+                    "Insufficient funds! Required: R%,.2f (including R%.2f fee). Available: R%,.2f",
+                    Money.toRands(totalDebit), Money.toRands(fee), Money.toRands(balance)
+            ));
+        }
+    }
+
+    // Transfer result DTO (money in cents)
     public static class TransferResult {
         public BankAccount fromAccount;
         public BankAccount toAccount;
-        public double fee;
-        public double totalDebit;
+        public String toAccountHolder;
+        public long fee;
+        public long totalDebit;
+        public long oldBalance;
+        public long newBalance;
         public String transactionId;
+        public LocalDateTime transactionDate;
         public String description;
     }
 
     // Alternative transfer method without description (for backward compatibility)
-    @Transactional
-    public void transfer(Integer fromAccountNumber, Integer toAccountNumber, Double amount) {
+    public void transfer(Integer fromAccountNumber, Integer toAccountNumber, long amount) {
         transfer(fromAccountNumber, toAccountNumber, amount, null);
     }
 
-    // Get all accounts
-    public List<BankAccount> getAllAccounts() {
-        return accountRepository.findAll();
-    }
-
     // Check if email exists
     public boolean emailExists(String email) {
         return accountRepository.existsByEmail(email);
@@ -225,42 +371,99 @@ public class BankAccountService {
     // Update account
     @Transactional
     public BankAccount updateAccount(BankAccount account) {
+        if (ledgerEngine != null) {
+            ledgerEngine.evict(account.getAccountNumber());
+        }
+        metadataCache.invalidate(account.getAccountNumber());
         return accountRepository.save(account);
     }
 
     // Delete account
     @Transactional
     public void deleteAccount(Integer accountNumber) {
+        if (ledgerEngine != null) {
+            ledgerEngine.evict(accountNumber);
+        }
+        metadataCache.invalidate(accountNumber);
         accountRepository.deleteById(accountNumber);
     }
 
     // ============ NEW METHODS ADDED ============
 
-    // Check if account exists
+    // Check if account exists (cached)
     public boolean accountExists(Integer accountNumber) {
-        return accountRepository.existsById(accountNumber);
+        return metadataCache.get(accountNumber).isPresent();
     }
 
-    // Get account holder name
+    // Get account holder name (cached)
     public String getAccountHolderName(Integer accountNumber) {
-        return accountRepository.findById(accountNumber)
-                .map(BankAccount::getAccountHolder)
+        return metadataCache.get(accountNumber)
+                .map(AccountMetadata::getAccountHolder)
                 .orElse("Account not found");
     }
 
-    // Update balance directly (for admin operations)
+    // Get holder name and email without touching the balance (cached)
+    public Optional<AccountMetadata> getAccountMetadata(Integer accountNumber) {
+        return metadataCache.get(accountNumber);
+    }
+
+    // Update balance directly (for admin operations). The difference is journaled as an
+    // ADJUSTMENT so the transaction log still adds up to the balance.
     @Transactional
-    public void updateBalance(Integer accountNumber, Double newBalance) {
-        BankAccount account = accountRepository.findById(accountNumber)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
+    public void updateBalance(Integer accountNumber, long newBalance) {
+        if (ledgerEngine != null) {
+            ledgerEngine.evict(accountNumber);
+        }
+        BankAccount account = lockAccount(accountNumber, "Account not found");
+        long delta = newBalance - account.getBalance();
         account.setBalance(newBalance);
         accountRepository.save(account);
+
+        if (delta != 0) {
+            transactionService.recordTransaction(
+                    accountNumber,
+                    "ADJUSTMENT",
+                    delta,
+                    null,
+                    "Balance adjustment",
+                    newBalance
+            );
+        }
+    }
+
+    // Search accounts by account number (all digits), email prefix (contains '@') or name.
+    // Names of 3+ characters match anywhere and are ranked by trigram similarity; shorter terms
+    // match as a prefix. Every branch is served by an index, never a scan of all accounts.
+    public Slice<AccountMetadata> searchAccounts(String query, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE));
+        String term = query == null ? "" : query.trim().toLowerCase();
+        if (term.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        if (term.chars().allMatch(Character::isDigit)) {
+            List<AccountMetadata> match = List.of();
+            if (term.length() <= 10 && pageable.getPageNumber() == 0) {
+                try {
+                    match = getAccountMetadata(Integer.valueOf(term)).map(List::of).orElse(List.of());
+                } catch (NumberFormatException ignored) {
+                    // Longer than any account number
+                }
+            }
+            return new SliceImpl<>(match, pageable, false);
+        }
+
+        String escaped = escapeLike(term);
+        if (term.indexOf('@') >= 0) {
+            return accountRepository.searchByEmailPrefix(escaped + "%", pageable);
+        }
+        if (term.length() < 3) {
+            return accountRepository.searchByHolderPrefix(escaped + "%", pageable);
+        }
+        return accountRepository.searchByHolderContaining("%" + escaped + "%", term, pageable);
     }
 
-    // Search accounts by name
-    public List<BankAccount> searchAccountsByName(String name) {
-        return accountRepository.findAll().stream()
-                .filter(account -> account.getAccountHolder().toLowerCase().contains(name.toLowerCase()))
-                .toList();
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.mbank.service;
+
+// A rejected banking operation. The message is shown to the user; the reason is used for metrics.
+public class BankingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        NOT_FOUND,
+        INSUFFICIENT_FUNDS,
+        LIMIT_EXCEEDED,
+        INVALID_REQUEST,
+        DUPLICATE_EMAIL
+    }
+
+    private final Reason reason;
+
+    public BankingException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mbank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency histograms and failure counters for money movement and statements.
+ *
+ * mbank.operation (timer, tags operation + outcome) measures the whole call including commit,
+ * so wrap the service call from the controller. mbank.operation.failures (counter, tags
+ * operation + reason) splits failures by {@link BankingException.Reason}; anything else is
+ * counted as "error". Meters are created once and cached, so recording is allocation-light.
+ */
+@Component
+public class BankingMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> failureCounters = new ConcurrentHashMap<>();
+
+    public BankingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T record(String operation, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = "failure";
+            failureCounter(operation, reason(e)).increment();
+            throw e;
+        } finally {
+            timer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + '|' + outcome, key -> Timer.builder("mbank.operation")
+                .description("Latency of banking operations")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry));
+    }
+
+    private Counter failureCounter(String operation, String reason) {
+        return failureCounters.computeIfAbsent(operation + '|' + reason, key -> Counter.builder("mbank.operation.failures")
+                .description("Failed banking operations by reason")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(registry));
+    }
+
+    private static String reason(RuntimeException e) {
+        if (e instanceof BankingException banking) {
+            return banking.getReason().name().toLowerCase(Locale.ROOT);
+        }
+        return "error";
+    }
+}
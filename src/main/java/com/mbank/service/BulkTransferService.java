@@ -0,0 +1,296 @@
+package com.mbank.service;
+
+import com.mbank.model.BankAccount;
+import com.mbank.model.Money;
+import com.mbank.model.Transaction;
+import com.mbank.repository.BankAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Pays many recipients from one account (payroll-style batches).
+ *
+ * Every row is validated up front (amount limits, self-transfer, recipient existence in bulk
+ * queries); invalid rows are reported and skipped. Valid rows are applied in chunks, one database
+ * transaction per chunk: all accounts the chunk touches are locked in one ascending-order
+ * SELECT ... FOR UPDATE, balances are adjusted on the managed entities and all journal legs go
+ * out as one batched insert. A row that would overdraw the debit account is rejected on its own
+ * and the rest of the chunk still applies.
+ */
+@Service
+public class BulkTransferService {
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Present only when mbank.ledger.in-memory.enabled=true
+    @Autowired(required = false)
+    private LedgerEngine ledgerEngine;
+
+    @Value("${mbank.bulk-transfer.max-rows:10000}")
+    private int maxRows;
+
+    @Value("${mbank.bulk-transfer.chunk-size:500}")
+    private int chunkSize;
+
+    // Largest IN list sent to the database in one query
+    private static final int LOOKUP_BATCH = 1000;
+
+    public BulkTransferReport transfer(Integer fromAccountNumber, List<BulkTransferRow> rows) {
+        if (rows.isEmpty()) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, "The batch is empty.");
+        }
+        if (rows.size() > maxRows) {
+            throw new BankingException(BankingException.Reason.LIMIT_EXCEEDED,
+                    "A batch may contain at most " + maxRows + " transfers.");
+        }
+
+        BulkTransferReport report = new BulkTransferReport();
+        report.fromAccountNumber = fromAccountNumber;
+        report.results = new ArrayList<>(rows.size());
+
+        // 1. Validate every row before moving any money
+        List<RowResult> valid = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            BulkTransferRow row = rows.get(i);
+            RowResult result = new RowResult();
+            result.row = i + 1;
+            result.toAccount = row.toAccount;
+            result.description = row.description;
+            report.results.add(result);
+            try {
+                if (row.toAccount == null || row.amount == null) {
+                    throw new BankingException(BankingException.Reason.INVALID_REQUEST,
+                            "Recipient account and amount are required.");
+                }
+                result.amountCents = cents(row.amount);
+                result.feeCents = BankAccountService.validateTransfer(fromAccountNumber, row.toAccount, result.amountCents);
+                valid.add(result);
+            } catch (BankingException e) {
+                reject(result, e);
+            }
+        }
+
+        Set<Integer> existing = existingAccounts(fromAccountNumber, valid);
+        if (!existing.contains(fromAccountNumber)) {
+            throw new BankingException(BankingException.Reason.NOT_FOUND, "Account not found");
+        }
+        List<RowResult> applicable = new ArrayList<>(valid.size());
+        for (RowResult result : valid) {
+            if (existing.contains(result.toAccount)) {
+                applicable.add(result);
+            } else {
+                reject(result, new BankingException(BankingException.Reason.NOT_FOUND,
+                        "Recipient account #" + result.toAccount + " not found!"));
+            }
+        }
+
+        // 2. Apply in chunks
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int start = 0; start < applicable.size(); start += chunkSize) {
+            List<RowResult> chunk = applicable.subList(start, Math.min(start + chunkSize, applicable.size()));
+            if (ledgerEngine != null) {
+                applyOneByOne(fromAccountNumber, chunk);
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChunk(fromAccountNumber, chunk));
+            } catch (RuntimeException e) {
+                // The chunk rolled back as a whole; nothing in it was applied
+                for (RowResult result : chunk) {
+                    result.status = RowResult.REJECTED;
+                    result.reason = "ERROR";
+                    result.message = "Not applied: " + e.getMessage();
+                    result.transactionId = null;
+                }
+            }
+        }
+
+        for (RowResult result : report.results) {
+            if (RowResult.APPLIED.equals(result.status)) {
+                report.applied++;
+                report.totalDebitedCents += result.amountCents + result.feeCents;
+            } else {
+                report.rejected++;
+            }
+        }
+        report.newBalanceCents = accountService.getBalance(fromAccountNumber);
+        return report;
+    }
+
+    private void applyChunk(Integer fromAccountNumber, List<RowResult> chunk) {
+        Set<Integer> lockSet = new TreeSet<>();
+        lockSet.add(fromAccountNumber);
+        for (RowResult result : chunk) {
+            lockSet.add(result.toAccount);
+        }
+        Map<Integer, BankAccount> locked = new HashMap<>();
+        for (BankAccount account : accountRepository.findAllByIdForUpdate(lockSet)) {
+            locked.put(account.getAccountNumber(), account);
+        }
+
+        BankAccount from = locked.get(fromAccountNumber);
+        if (from == null) {
+            throw new BankingException(BankingException.Reason.NOT_FOUND, "Account not found");
+        }
+
+        List<Transaction> legs = new ArrayList<>(chunk.size() * 2);
+        for (RowResult result : chunk) {
+            BankAccount to = locked.get(result.toAccount);
+            if (to == null) {
+                // Closed after validation
+                reject(result, new BankingException(BankingException.Reason.NOT_FOUND,
+                        "Recipient account #" + result.toAccount + " not found!"));
+                continue;
+            }
+            long totalDebit = result.amountCents + result.feeCents;
+            if (from.getBalance() < totalDebit) {
+                reject(result, BankAccountService.insufficientFunds(from.getBalance()));
+                continue;
+            }
+
+            from.setBalance(from.getBalance() - totalDebit);
+            to.setBalance(to.getBalance() + result.amountCents);
+
+            Transaction debit = transactionService.newTransaction(
+                    fromAccountNumber,
+                    "TRANSFER_DEBIT",
+                    -result.amountCents,
+                    result.toAccount.toString(),
+                    result.description != null ? result.description : "Transfer to account #" + result.toAccount,
+                    result.feeCents,
+                    transactionService.generateTransactionId("TRF")
+            );
+            Transaction credit = transactionService.newTransaction(
+                    result.toAccount,
+                    "TRANSFER_CREDIT",
+                    result.amountCents,
+                    fromAccountNumber.toString(),
+                    result.description != null ? result.description : "Transfer from account #" + fromAccountNumber,
+                    0,
+                    transactionService.generateTransactionId("TRF")
+            );
+            debit.setBalanceAfter(from.getBalance());
+            credit.setBalanceAfter(to.getBalance());
+            legs.add(debit);
+            legs.add(credit);
+            result.status = RowResult.APPLIED;
+            result.transactionId = debit.getTransactionId();
+        }
+
+        // One batched insert for the whole chunk; balances flush as batched updates on commit
+        transactionService.recordTransactions(legs);
+    }
+
+    // The in-memory ledger has its own locking; feed it the rows one at a time. Each row commits
+    // on its own, so a failure is reported against that row and the rest of the batch carries on.
+    private void applyOneByOne(Integer fromAccountNumber, List<RowResult> chunk) {
+        for (RowResult result : chunk) {
+            try {
+                BankAccountService.TransferResult transfer =
+                        accountService.transfer(fromAccountNumber, result.toAccount, result.amountCents, result.description);
+                result.status = RowResult.APPLIED;
+                result.transactionId = transfer.transactionId;
+            } catch (BankingException e) {
+                reject(result, e);
+            } catch (RuntimeException e) {
+                // Ledger writer or commit failure: the movement was not saved
+                result.status = RowResult.REJECTED;
+                result.reason = "ERROR";
+                result.message = "Not applied: " + e.getMessage();
+            }
+        }
+    }
+
+    // The debit account plus every recipient that exists, looked up in IN batches
+    private Set<Integer> existingAccounts(Integer fromAccountNumber, List<RowResult> rows) {
+        Set<Integer> wanted = new HashSet<>();
+        wanted.add(fromAccountNumber);
+        for (RowResult result : rows) {
+            wanted.add(result.toAccount);
+        }
+        List<Integer> numbers = new ArrayList<>(wanted);
+        Set<Integer> existing = new HashSet<>();
+        for (int start = 0; start < numbers.size(); start += LOOKUP_BATCH) {
+            existing.addAll(accountRepository.findExistingAccountNumbers(
+                    numbers.subList(start, Math.min(start + LOOKUP_BATCH, numbers.size()))));
+        }
+        return existing;
+    }
+
+    private static long cents(BigDecimal rands) {
+        try {
+            return Money.fromRands(rands);
+        } catch (IllegalArgumentException e) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, e.getMessage());
+        }
+    }
+
+    private static void reject(RowResult result, BankingException e) {
+        result.status = RowResult.REJECTED;
+        result.reason = e.getReason().name();
+        result.message = e.getMessage();
+    }
+
+    // One row of the uploaded batch; the amount is in rands, as typed
+    public static class BulkTransferRow {
+        public Integer toAccount;
+        public BigDecimal amount;
+        public String description;
+
+        public BulkTransferRow() {}
+
+        public BulkTransferRow(Integer toAccount, BigDecimal amount, String description) {
+            this.toAccount = toAccount;
+            this.amount = amount;
+            this.description = description;
+        }
+    }
+
+    // Outcome of one row; row numbers are 1-based positions in the upload. Money is in cents.
+    public static class RowResult {
+        public static final String APPLIED = "APPLIED";
+        public static final String REJECTED = "REJECTED";
+
+        public int row;
+        public Integer toAccount;
+        public long amountCents;
+        public long feeCents;
+        public String description;
+        public String status;
+        public String reason;
+        public String message;
+        public String transactionId;
+    }
+
+    // Per-row report for the whole batch (money in cents)
+    public static class BulkTransferReport {
+        public Integer fromAccountNumber;
+        public int applied;
+        public int rejected;
+        public long totalDebitedCents;
+        public long newBalanceCents;
+        public List<RowResult> results;
+    }
+}
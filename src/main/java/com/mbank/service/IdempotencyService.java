@@ -0,0 +1,289 @@
+package com.mbank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mbank.model.IdempotencyRecord;
+import com.mbank.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Applies deposits, withdrawals and transfers at most once per (account, idempotency key).
+ *
+ * The key row in idempotency_keys, outcome included, commits atomically with the balance change,
+ * so a retry (on any machine) finds the stored outcome and replays it without touching balances
+ * or the journal. On the database path the key is claimed and completed in the movement's own
+ * transaction. With the in-memory ledger the movement commits on the ledger's writer thread, so
+ * the key row is handed to the ledger and written in the same group commit instead.
+ *
+ * Within this instance, completed outcomes are served from a bounded cache, and a duplicate that
+ * arrives while the first is still running waits for it instead of queueing on the row lock.
+ * Requests without a key run normally.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Present only when mbank.ledger.in-memory.enabled=true
+    @Autowired(required = false)
+    private LedgerEngine ledgerEngine;
+
+    @Value("${mbank.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${mbank.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    private final Cache<String, IdempotencyRecord> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService purger;
+
+    public IdempotencyService(@Value("${mbank.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${mbank.idempotency.cache-ttl-minutes:10}") long cacheTtlMinutes) {
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idempotency-purger");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(this::purgeQuietly, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        purger.shutdown();
+    }
+
+    public BankAccountService.BalanceChange deposit(Integer accountNumber, long amount, String key) {
+        if (key == null || key.isBlank()) {
+            return accountService.deposit(accountNumber, amount);
+        }
+        IdempotencyRecord record = execute(accountNumber, key, "DEPOSIT", amount, null,
+                claim -> fromBalanceChange(ledgerEngine != null
+                        ? ledgerEngine.deposit(accountNumber, amount, claim)
+                        : accountService.deposit(accountNumber, amount)));
+        return toBalanceChange(record);
+    }
+
+    public BankAccountService.BalanceChange withdraw(Integer accountNumber, long amount, String key) {
+        if (key == null || key.isBlank()) {
+            return accountService.withdraw(accountNumber, amount);
+        }
+        IdempotencyRecord record = execute(accountNumber, key, "WITHDRAWAL", amount, null,
+                claim -> fromBalanceChange(ledgerEngine != null
+                        ? ledgerEngine.withdraw(accountNumber, amount, claim)
+                        : accountService.withdraw(accountNumber, amount)));
+        return toBalanceChange(record);
+    }
+
+    public BankAccountService.TransferResult transfer(Integer fromAccountNumber, Integer toAccountNumber,
+                                                      long amount, String description, String key) {
+        if (key == null || key.isBlank()) {
+            return accountService.transfer(fromAccountNumber, toAccountNumber, amount, description);
+        }
+        IdempotencyRecord record = execute(fromAccountNumber, key, "TRANSFER", amount, toAccountNumber, claim -> {
+            BankAccountService.TransferResult result = ledgerEngine != null
+                    ? ledgerEngine.transfer(fromAccountNumber, toAccountNumber, amount, description, claim)
+                    : accountService.transfer(fromAccountNumber, toAccountNumber, amount, description);
+            IdempotencyRecord outcome = new IdempotencyRecord();
+            outcome.setOldBalance(result.oldBalance);
+            outcome.setNewBalance(result.newBalance);
+            outcome.setFee(result.fee);
+            outcome.setTotalDebit(result.totalDebit);
+            outcome.setToAccountHolder(result.toAccountHolder);
+            outcome.setTransactionId(result.transactionId);
+            outcome.setTransactionDate(result.transactionDate);
+            return outcome;
+        });
+
+        BankAccountService.TransferResult result = new BankAccountService.TransferResult();
+        result.fee = record.getFee();
+        result.totalDebit = record.getTotalDebit();
+        result.oldBalance = record.getOldBalance();
+        result.newBalance = record.getNewBalance();
+        result.toAccountHolder = record.getToAccountHolder();
+        result.transactionId = record.getTransactionId();
+        result.transactionDate = record.getTransactionDate();
+        result.description = description;
+        return result;
+    }
+
+    // The action applies the movement and returns its outcome. It is given the key row to store:
+    // the in-memory ledger writes it with the movement, the database path ignores it.
+    private IdempotencyRecord execute(Integer accountNumber, String key, String operation, long amount,
+                                      Integer toAccount, Function<IdempotencyRecord, IdempotencyRecord> action) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST, "Idempotency key is too long");
+        }
+        String cacheKey = accountNumber + ":" + key;
+
+        IdempotencyRecord done = completed.getIfPresent(cacheKey);
+        if (done != null) {
+            return sameRequest(done, operation, amount, toAccount);
+        }
+
+        CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return sameRequest(await(running), operation, amount, toAccount);
+        }
+
+        IdempotencyRecord claim = new IdempotencyRecord();
+        claim.setAccountNumber(accountNumber);
+        claim.setIdempotencyKey(key);
+        claim.setOperation(operation);
+        claim.setAmount(amount);
+        claim.setToAccount(toAccount);
+        claim.setCreatedAt(LocalDateTime.now());
+
+        try {
+            IdempotencyRecord record = ledgerEngine != null
+                    ? executeInLedger(claim, action)
+                    : executeInTransaction(claim, action);
+            completed.put(cacheKey, record);
+            mine.complete(record);
+            return sameRequest(record, operation, amount, toAccount);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private IdempotencyRecord executeInTransaction(IdempotencyRecord claim,
+                                                   Function<IdempotencyRecord, IdempotencyRecord> action) {
+        return transactionTemplate.execute(status -> {
+            if (repository.claim(claim.getAccountNumber(), claim.getIdempotencyKey(), claim.getOperation(),
+                    claim.getAmount(), claim.getToAccount(), claim.getCreatedAt()) == 0) {
+                // Already applied (possibly by another machine): replay the stored outcome
+                return stored(claim).orElseThrow(
+                        () -> new IllegalStateException("Idempotency key vanished: " + claim.getIdempotencyKey()));
+            }
+
+            IdempotencyRecord outcome = action.apply(claim);
+            repository.complete(claim.getAccountNumber(), claim.getIdempotencyKey(), outcome.getOldBalance(),
+                    outcome.getNewBalance(), outcome.getFee(), outcome.getTotalDebit(), outcome.getToAccountHolder(),
+                    outcome.getTransactionId(), outcome.getTransactionDate());
+            return withRequest(outcome, claim);
+        });
+    }
+
+    // No transaction here: the ledger commits the key row with the movement on its writer thread.
+    // The single-node lock and the in-flight map leave nothing else that could claim the key meanwhile.
+    private IdempotencyRecord executeInLedger(IdempotencyRecord claim,
+                                              Function<IdempotencyRecord, IdempotencyRecord> action) {
+        Optional<IdempotencyRecord> stored = stored(claim);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        return withRequest(action.apply(claim), claim);
+    }
+
+    private Optional<IdempotencyRecord> stored(IdempotencyRecord claim) {
+        return repository.findById(new IdempotencyRecord.Key(claim.getAccountNumber(), claim.getIdempotencyKey()));
+    }
+
+    private static IdempotencyRecord withRequest(IdempotencyRecord outcome, IdempotencyRecord claim) {
+        outcome.setAccountNumber(claim.getAccountNumber());
+        outcome.setIdempotencyKey(claim.getIdempotencyKey());
+        outcome.setOperation(claim.getOperation());
+        outcome.setAmount(claim.getAmount());
+        outcome.setToAccount(claim.getToAccount());
+        return outcome;
+    }
+
+    // A key may only be replayed for the request it was first used with
+    private static IdempotencyRecord sameRequest(IdempotencyRecord record, String operation, long amount,
+                                                 Integer toAccount) {
+        if (!record.getOperation().equals(operation)
+                || record.getAmount() != amount
+                || !Objects.equals(record.getToAccount(), toAccount)) {
+            throw new BankingException(BankingException.Reason.INVALID_REQUEST,
+                    "This request key was already used for a different transaction.");
+        }
+        return record;
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("The original request is still being processed. Please try again.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request");
+        }
+    }
+
+    private static IdempotencyRecord fromBalanceChange(BankAccountService.BalanceChange change) {
+        IdempotencyRecord outcome = new IdempotencyRecord();
+        outcome.setOldBalance(change.oldBalance);
+        outcome.setNewBalance(change.newBalance);
+        outcome.setTransactionId(change.transactionId);
+        outcome.setTransactionDate(change.transactionDate);
+        return outcome;
+    }
+
+    private static BankAccountService.BalanceChange toBalanceChange(IdempotencyRecord record) {
+        return new BankAccountService.BalanceChange(record.getOldBalance(), record.getNewBalance(),
+                record.getTransactionId(), record.getTransactionDate());
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = repository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency keys", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Idempotency key purge failed: {}", e.getMessage());
+        }
+    }
+}
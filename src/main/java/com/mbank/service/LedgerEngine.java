@@ -0,0 +1,885 @@
+package com.mbank.service;
+
+import com.mbank.model.BankAccount;
+import com.mbank.model.IdempotencyRecord;
+import com.mbank.model.Transaction;
+import com.mbank.repository.BankAccountRepository;
+import com.mbank.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-memory ledger for hot accounts.
+ *
+ * Balances live in lock-striped, int-keyed tables; every money movement is validated and
+ * applied in memory, queued for the writer thread, and acknowledged only once the database
+ * transaction holding it has committed. The writer takes everything queued while the previous
+ * commit was in flight, so concurrent movements share one commit (group commit).
+ *
+ * The database is only ever written by the single writer thread, in queue order, so a balance
+ * can never be overwritten by an older one. If a commit fails, every account it touched is
+ * closed: movements already queued against the in-memory balance are failed too, and the
+ * account is reloaded from the database once nothing for it is in flight.
+ *
+ * Balances held in memory are only correct if no other instance moves money, so the engine
+ * holds a PostgreSQL advisory lock for its lifetime and refuses to start if another instance
+ * has it. Enable with {@code mbank.ledger.in-memory.enabled=true} on a single machine only.
+ *
+ * Residency is bounded: each stripe holds at most its share of
+ * {@code mbank.ledger.in-memory.max-resident-accounts}, and loading one more evicts an idle slot
+ * (nothing in flight) that has not moved money since the clock hand last passed it. A slot keeps
+ * only the balance and the holder name the transfer result needs, never the credentials.
+ *
+ * A movement sent with an idempotency key carries its key row, outcome included, into the same
+ * group commit, so the key is stored exactly when the money moves.
+ */
+@Service
+@ConditionalOnProperty(prefix = "mbank.ledger.in-memory", name = "enabled", havingValue = "true")
+public class LedgerEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+
+    // pg_advisory_lock key held by the one instance allowed to run the in-memory ledger
+    private static final long SINGLE_NODE_LOCK_KEY = 0x6D42616E6B4C6564L;
+
+    private static final long OWNERSHIP_CHECK_INTERVAL_MS = 5000;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${mbank.ledger.in-memory.stripes:64}")
+    private int stripeCount;
+
+    // Upper bound on the movements written in one database transaction
+    @Value("${mbank.ledger.in-memory.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    // Split evenly across stripes; a stripe only exceeds its share while every slot has a movement in flight
+    @Value("${mbank.ledger.in-memory.max-resident-accounts:100000}")
+    private int maxResidentAccounts;
+
+    private Stripe[] stripes;
+    private int stripeShift;
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private Connection ownerConnection;
+    private long lastOwnershipCheck;
+
+    private volatile boolean running;
+    private volatile boolean accepting;
+    // False while the single-node lock is lost; nothing is committed until it is back
+    private volatile boolean owner;
+
+    // Movements applied in memory and waiting for the writer, in the order they were applied
+    private final LinkedBlockingQueue<PendingWrite> writes = new LinkedBlockingQueue<>();
+    private final AtomicLong residencies = new AtomicLong();
+    // Residencies whose in-memory balance includes a movement that failed to commit
+    private final Set<Long> failedResidencies = ConcurrentHashMap.newKeySet();
+    // Accounts being written directly (admin paths); they stay out of memory until that commits
+    private final Map<Integer, CompletableFuture<Void>> fences = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() {
+        acquireOwnership();
+
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[size];
+        int stripeCapacity = Math.max(1, (maxResidentAccounts + size - 1) / size);
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        stripeShift = 32 - Integer.numberOfTrailingZeros(size);
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        accepting = true;
+        writer = new Thread(this::runWriter, "ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("In-memory ledger enabled with {} lock stripes, up to {} resident accounts each",
+                size, stripeCapacity);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        accepting = false;
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        PendingWrite leftover;
+        while ((leftover = writes.poll()) != null) {
+            fail(leftover, new IllegalStateException("Transactions are temporarily unavailable. Please try again."));
+        }
+        releaseOwnership();
+    }
+
+    // Deposit into a hot account
+    public BankAccountService.BalanceChange deposit(Integer accountNumber, long amount) {
+        return deposit(accountNumber, amount, null);
+    }
+
+    // With an idempotency key: the claimed key row gets the outcome and is committed with the movement
+    public BankAccountService.BalanceChange deposit(Integer accountNumber, long amount, IdempotencyRecord key) {
+        BankAccountService.validateDeposit(amount);
+
+        Stripe stripe = stripeFor(accountNumber);
+        while (true) {
+            load(accountNumber, "Account not found");
+            PendingWrite write;
+            BankAccountService.BalanceChange change;
+            stripe.lock.lock();
+            try {
+                int slot = stripe.openSlot(accountNumber);
+                if (slot < 0) {
+                    continue; // evicted or closed between load and lock
+                }
+                ensureAccepting();
+                long oldBalance = stripe.balances[slot];
+                stripe.balances[slot] = oldBalance + amount;
+                Transaction transaction = transactionService.newTransaction(
+                        accountNumber, "DEPOSIT", amount, null, "Deposit to account");
+                transaction.setBalanceAfter(oldBalance + amount);
+
+                write = new PendingWrite(List.of(transaction), outcome(key, oldBalance, oldBalance + amount, transaction));
+                write.touch(stripe, slot);
+                writes.add(write);
+                change = new BankAccountService.BalanceChange(oldBalance, oldBalance + amount, transaction);
+            } finally {
+                stripe.lock.unlock();
+            }
+            awaitCommit(write);
+            return change;
+        }
+    }
+
+    // Withdraw from a hot account
+    public BankAccountService.BalanceChange withdraw(Integer accountNumber, long amount) {
+        return withdraw(accountNumber, amount, null);
+    }
+
+    public BankAccountService.BalanceChange withdraw(Integer accountNumber, long amount, IdempotencyRecord key) {
+        BankAccountService.validateWithdrawal(amount);
+
+        Stripe stripe = stripeFor(accountNumber);
+        while (true) {
+            load(accountNumber, "Account not found");
+            PendingWrite write;
+            BankAccountService.BalanceChange change;
+            stripe.lock.lock();
+            try {
+                int slot = stripe.openSlot(accountNumber);
+                if (slot < 0) {
+                    continue;
+                }
+                ensureAccepting();
+                long oldBalance = stripe.balances[slot];
+                if (amount > oldBalance) {
+                    throw BankAccountService.insufficientFunds(oldBalance);
+                }
+                stripe.balances[slot] = oldBalance - amount;
+                Transaction transaction = transactionService.newTransaction(
+                        accountNumber, "WITHDRAWAL", -amount, null, "Withdrawal from account");
+                transaction.setBalanceAfter(oldBalance - amount);
+
+                write = new PendingWrite(List.of(transaction), outcome(key, oldBalance, oldBalance - amount, transaction));
+                write.touch(stripe, slot);
+                writes.add(write);
+                change = new BankAccountService.BalanceChange(oldBalance, oldBalance - amount, transaction);
+            } finally {
+                stripe.lock.unlock();
+            }
+            awaitCommit(write);
+            return change;
+        }
+    }
+
+    // Transfer between two hot accounts. Stripes are always locked in ascending
+    // stripe order so two opposite transfers can never wait on each other.
+    public BankAccountService.TransferResult transfer(Integer fromAccountNumber, Integer toAccountNumber,
+                                                      long amount, String description) {
+        return transfer(fromAccountNumber, toAccountNumber, amount, description, null);
+    }
+
+    public BankAccountService.TransferResult transfer(Integer fromAccountNumber, Integer toAccountNumber,
+                                                      long amount, String description, IdempotencyRecord key) {
+        long fee = BankAccountService.validateTransfer(fromAccountNumber, toAccountNumber, amount);
+        long totalDebit = amount + fee;
+
+        Stripe fromStripe = stripeFor(fromAccountNumber);
+        Stripe toStripe = stripeFor(toAccountNumber);
+        Stripe first = stripeIndex(fromAccountNumber) <= stripeIndex(toAccountNumber) ? fromStripe : toStripe;
+        Stripe second = first == fromStripe ? toStripe : fromStripe;
+
+        while (true) {
+            load(fromAccountNumber, "Account not found");
+            load(toAccountNumber, "Recipient account #" + toAccountNumber + " not found!");
+            PendingWrite write;
+            BankAccountService.TransferResult result;
+            first.lock.lock();
+            if (second != first) {
+                second.lock.lock();
+            }
+            try {
+                int fromSlot = fromStripe.openSlot(fromAccountNumber);
+                int toSlot = toStripe.openSlot(toAccountNumber);
+                if (fromSlot < 0 || toSlot < 0) {
+                    continue;
+                }
+                ensureAccepting();
+
+                long oldBalance = fromStripe.balances[fromSlot];
+                BankAccountService.checkTransferFunds(oldBalance, totalDebit, fee);
+
+                long fromBalance = oldBalance - totalDebit;
+                fromStripe.balances[fromSlot] = fromBalance;
+                long toBalance = toStripe.balances[toSlot] + amount;
+                toStripe.balances[toSlot] = toBalance;
+
+                Transaction debit = transactionService.newTransaction(fromAccountNumber, "TRANSFER_DEBIT", -amount,
+                        toAccountNumber.toString(),
+                        description != null ? description : "Transfer to account #" + toAccountNumber,
+                        fee, transactionService.generateTransactionId("TRF"));
+                Transaction credit = transactionService.newTransaction(toAccountNumber, "TRANSFER_CREDIT", amount,
+                        fromAccountNumber.toString(),
+                        description != null ? description : "Transfer from account #" + fromAccountNumber,
+                        0, transactionService.generateTransactionId("TRF"));
+                debit.setBalanceAfter(fromBalance);
+                credit.setBalanceAfter(toBalance);
+
+                result = new BankAccountService.TransferResult();
+                result.fromAccount = snapshot(fromAccountNumber, fromStripe.holders[fromSlot], fromBalance);
+                result.toAccount = snapshot(toAccountNumber, toStripe.holders[toSlot], toBalance);
+                result.toAccountHolder = toStripe.holders[toSlot];
+                result.fee = fee;
+                result.totalDebit = totalDebit;
+                result.oldBalance = oldBalance;
+                result.newBalance = fromBalance;
+                result.transactionId = debit.getTransactionId();
+                result.transactionDate = debit.getTransactionDate();
+                result.description = description;
+
+                IdempotencyRecord outcome = outcome(key, oldBalance, fromBalance, debit);
+                if (outcome != null) {
+                    outcome.setFee(fee);
+                    outcome.setTotalDebit(totalDebit);
+                    outcome.setToAccountHolder(result.toAccountHolder);
+                }
+                write = new PendingWrite(List.of(debit, credit), outcome);
+                write.touch(fromStripe, fromSlot);
+                write.touch(toStripe, toSlot);
+                writes.add(write);
+            } finally {
+                if (second != first) {
+                    second.lock.unlock();
+                }
+                first.lock.unlock();
+            }
+            awaitCommit(write);
+            return result;
+        }
+    }
+
+    // Called before the account is written directly in the caller's transaction: waits for its
+    // in-flight movements to commit, drops it from memory and keeps it out until that transaction
+    // completes, so the next movement reloads the directly written row.
+    public void evict(Integer accountNumber) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            CompletableFuture<Void> fence = new CompletableFuture<>();
+            fences.put(accountNumber, fence);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    fences.remove(accountNumber, fence);
+                    fence.complete(null);
+                }
+            });
+        }
+        drain(accountNumber);
+    }
+
+    // Closes the account to new movements, waits until nothing for it is queued or committing,
+    // then removes it from memory
+    private void drain(Integer accountNumber) {
+        Stripe stripe = stripeFor(accountNumber);
+        while (true) {
+            CompletableFuture<?> last;
+            stripe.lock.lock();
+            try {
+                stripe.generation++;
+                int slot = stripe.indexOf(accountNumber);
+                if (slot < 0) {
+                    return;
+                }
+                stripe.closed[slot] = true;
+                if (stripe.pending[slot] == 0) {
+                    failedResidencies.remove(stripe.residencies[slot]);
+                    stripe.removeAt(slot);
+                    return;
+                }
+                last = stripe.lastWrite[slot];
+            } finally {
+                stripe.lock.unlock();
+            }
+            last.handle((ignored, error) -> null).join();
+        }
+    }
+
+    // ============ WRITER ============
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(flushBatchSize);
+        while (true) {
+            checkOwnership();
+            PendingWrite next;
+            try {
+                next = writes.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) {
+                if (!running) {
+                    return; // stopped and fully drained
+                }
+                continue;
+            }
+
+            batch.add(next);
+            writes.drainTo(batch, flushBatchSize - 1);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    // One database transaction for the whole batch; every caller in it is released only afterwards
+    private void commit(List<PendingWrite> batch) {
+        List<PendingWrite> valid = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            if (!owner || write.builtOnFailedWrite()) {
+                fail(write, new IllegalStateException("Could not save the transaction. Please try again."));
+            } else {
+                valid.add(write);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        // Queue order is apply order, so the last balance seen per account is its newest.
+        // Rows are updated in account-number order, like every other multi-row writer.
+        Map<Integer, Long> balances = new TreeMap<>();
+        List<Transaction> journal = new ArrayList<>();
+        List<IdempotencyRecord> keys = new ArrayList<>();
+        for (PendingWrite write : valid) {
+            for (Transaction transaction : write.journal) {
+                balances.put(transaction.getAccountNumber(), transaction.getBalanceAfter());
+                journal.add(transaction);
+            }
+            if (write.idempotencyKey != null) {
+                keys.add(write.idempotencyKey);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<Integer, Long> balance : balances.entrySet()) {
+                    accountRepository.updateBalance(balance.getKey(), balance.getValue());
+                }
+                transactionService.recordTransactions(journal);
+                for (IdempotencyRecord key : keys) {
+                    storeKey(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Ledger commit of {} movements failed: {}", valid.size(), e.getMessage());
+            for (PendingWrite write : valid) {
+                fail(write, new IllegalStateException("Could not save the transaction. Please try again.", e));
+            }
+            return;
+        }
+
+        for (PendingWrite write : valid) {
+            write.settle();
+            write.done.complete(null);
+        }
+    }
+
+    // IdempotencyService checks for a stored key before applying, and lets only one request per key
+    // in at a time; a key that is taken anyway fails the batch rather than apply the movement twice
+    private void storeKey(IdempotencyRecord key) {
+        if (idempotencyRepository.claim(key.getAccountNumber(), key.getIdempotencyKey(), key.getOperation(),
+                key.getAmount(), key.getToAccount(), key.getCreatedAt()) == 0) {
+            throw new IllegalStateException("Idempotency key " + key.getIdempotencyKey() + " is already used");
+        }
+        idempotencyRepository.complete(key.getAccountNumber(), key.getIdempotencyKey(), key.getOldBalance(),
+                key.getNewBalance(), key.getFee(), key.getTotalDebit(), key.getToAccountHolder(),
+                key.getTransactionId(), key.getTransactionDate());
+    }
+
+    // Fills in the outcome on a claimed key, or null for a movement sent without one
+    private static IdempotencyRecord outcome(IdempotencyRecord key, long oldBalance, long newBalance,
+                                             Transaction transaction) {
+        if (key == null) {
+            return null;
+        }
+        key.setOldBalance(oldBalance);
+        key.setNewBalance(newBalance);
+        key.setTransactionId(transaction.getTransactionId());
+        key.setTransactionDate(transaction.getTransactionDate());
+        return key;
+    }
+
+    // The in-memory balances of every account the write touched now include a movement the
+    // database never got; close them so they are reloaded once their queue has drained.
+    private void fail(PendingWrite write, RuntimeException error) {
+        for (int i = 0; i < write.size; i++) {
+            failedResidencies.add(write.residencies[i]);
+            Stripe stripe = write.stripes[i];
+            stripe.lock.lock();
+            try {
+                int slot = stripe.indexOf(write.accountNumbers[i]);
+                if (slot >= 0 && stripe.residencies[slot] == write.residencies[i]) {
+                    stripe.closed[slot] = true;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        write.settle();
+        write.done.completeExceptionally(error);
+    }
+
+    // Checked before a movement touches any balance. Writes are queued while the stripe lock(s)
+    // of every account in them are held, so queue order per account is the order they were applied in.
+    private void ensureAccepting() {
+        if (!accepting || !owner) {
+            throw new IllegalStateException("Transactions are temporarily unavailable. Please try again.");
+        }
+    }
+
+    private static void awaitCommit(PendingWrite write) {
+        try {
+            write.done.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    // ============ SINGLE-NODE OWNERSHIP ============
+
+    // Fails start-up when another instance already runs the in-memory ledger
+    private void acquireOwnership() {
+        try {
+            ownerConnection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+            if (!tryAdvisoryLock(ownerConnection)) {
+                ownerConnection.close();
+                throw new IllegalStateException("The in-memory ledger is already running on another instance; "
+                        + "mbank.ledger.in-memory.enabled is only supported on a single node");
+            }
+            owner = true;
+            lastOwnershipCheck = System.currentTimeMillis();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not take the in-memory ledger single-node lock", e);
+        }
+    }
+
+    // Runs on the writer thread between batches. If the lock connection dropped, another instance may
+    // have taken over: stop accepting movements and reload every account once the lock is back.
+    private void checkOwnership() {
+        long now = System.currentTimeMillis();
+        if (now - lastOwnershipCheck < OWNERSHIP_CHECK_INTERVAL_MS) {
+            return;
+        }
+        lastOwnershipCheck = now;
+        try {
+            if (ownerConnection.isValid(2)) {
+                return;
+            }
+        } catch (SQLException ignored) {
+            // treated as lost below
+        }
+
+        if (owner) {
+            log.error("In-memory ledger lost its single-node lock; rejecting movements until it is reacquired");
+            owner = false;
+            closeAll();
+        }
+        try {
+            ownerConnection.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+        try {
+            ownerConnection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+            if (tryAdvisoryLock(ownerConnection)) {
+                log.info("In-memory ledger reacquired its single-node lock");
+                owner = true;
+            }
+        } catch (SQLException e) {
+            log.warn("In-memory ledger could not reacquire its single-node lock: {}", e.getMessage());
+        }
+    }
+
+    private static boolean tryAdvisoryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, SINGLE_NODE_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void releaseOwnership() {
+        try {
+            ownerConnection.close(); // session end releases the advisory lock
+        } catch (SQLException e) {
+            log.warn("Closing the in-memory ledger lock connection failed: {}", e.getMessage());
+        }
+    }
+
+    private void closeAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.generation++;
+                for (int i = 0; i < stripe.keys.length; i++) {
+                    if (stripe.keys[i] != 0) {
+                        stripe.closed[i] = true;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    // ============ RESIDENCY ============
+
+    // Make sure an account is resident and open, reading it from the database outside the stripe lock
+    private void load(Integer accountNumber, String notFoundMessage) {
+        Stripe stripe = stripeFor(accountNumber);
+        while (true) {
+            int generation;
+            boolean closed;
+            stripe.lock.lock();
+            try {
+                int slot = stripe.indexOf(accountNumber);
+                if (slot >= 0 && !stripe.closed[slot]) {
+                    return;
+                }
+                closed = slot >= 0;
+                generation = stripe.generation;
+            } finally {
+                stripe.lock.unlock();
+            }
+
+            if (closed) {
+                drain(accountNumber);
+                continue;
+            }
+            CompletableFuture<Void> fence = fences.get(accountNumber);
+            if (fence != null) {
+                fence.join();
+                continue;
+            }
+
+            BankAccount account = accountRepository.findById(accountNumber)
+                    .orElseThrow(() -> new BankingException(BankingException.Reason.NOT_FOUND, notFoundMessage));
+
+            stripe.lock.lock();
+            try {
+                // Any eviction since the read means the row may have changed under us; read it again
+                if (stripe.generation == generation) {
+                    if (stripe.indexOf(accountNumber) < 0) {
+                        stripe.insert(accountNumber, account.getBalance(), account.getAccountHolder(),
+                                residencies.incrementAndGet());
+                    }
+                    return;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    // Detached view handed back to callers: number, holder and in-memory balance only
+    private static BankAccount snapshot(Integer accountNumber, String accountHolder, long balance) {
+        return new BankAccount(accountNumber, accountHolder, balance, null, null);
+    }
+
+    private Stripe stripeFor(int accountNumber) {
+        return stripes[stripeIndex(accountNumber)];
+    }
+
+    private int stripeIndex(int accountNumber) {
+        return stripeShift == 32 ? 0 : spread(accountNumber) >>> stripeShift;
+    }
+
+    private static int spread(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // One acknowledged-on-commit movement: its journal rows, key row and the residencies it was applied to
+    private final class PendingWrite {
+        final List<Transaction> journal;
+        // Key row stored in the same commit, or null
+        final IdempotencyRecord idempotencyKey;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final Stripe[] stripes = new Stripe[2];
+        final int[] accountNumbers = new int[2];
+        final long[] residencies = new long[2];
+        int size;
+
+        PendingWrite(List<Transaction> journal, IdempotencyRecord idempotencyKey) {
+            this.journal = journal;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        // Called under the stripe lock
+        void touch(Stripe stripe, int slot) {
+            stripes[size] = stripe;
+            accountNumbers[size] = stripe.keys[slot];
+            residencies[size] = stripe.residencies[slot];
+            size++;
+            stripe.pending[slot]++;
+            stripe.lastWrite[slot] = done;
+            stripe.referenced[slot] = true;
+        }
+
+        boolean builtOnFailedWrite() {
+            for (int i = 0; i < size; i++) {
+                if (failedResidencies.contains(residencies[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // No longer in flight, committed or not
+        void settle() {
+            for (int i = 0; i < size; i++) {
+                Stripe stripe = stripes[i];
+                stripe.lock.lock();
+                try {
+                    int slot = stripe.indexOf(accountNumbers[i]);
+                    if (slot >= 0 && stripe.residencies[slot] == residencies[i]) {
+                        stripe.pending[slot]--;
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Open-addressing (linear probing) int -> balance table owned by one lock stripe.
+    // Account number 0 marks an empty slot. Only touched while holding the stripe lock.
+    static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        // Resident accounts above which an insert first evicts an idle one
+        final int capacity;
+        int[] keys = new int[16];
+        long[] balances = new long[16];
+        String[] holders = new String[16];
+        // Unique id of each load, so writes queued against an earlier residency are told apart
+        long[] residencies = new long[16];
+        // Movements applied but not yet committed or failed, and the latest of them
+        int[] pending = new int[16];
+        CompletableFuture<?>[] lastWrite = new CompletableFuture<?>[16];
+        // Closed slots take no new movements; they are removed once pending reaches zero
+        boolean[] closed = new boolean[16];
+        // Clock bit: set by every movement, cleared as the eviction hand passes
+        boolean[] referenced = new boolean[16];
+        // Bumped on every eviction, so a load that raced one knows its read may be stale
+        int generation;
+        int size;
+        int hand;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        int indexOf(int key) {
+            int mask = keys.length - 1;
+            int i = spread(key) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        int openSlot(int key) {
+            int slot = indexOf(key);
+            return slot >= 0 && !closed[slot] ? slot : -1;
+        }
+
+        void insert(int key, long balance, String holder, long residency) {
+            if (size >= capacity) {
+                evictIdle();
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int slot = place(key);
+            balances[slot] = balance;
+            holders[slot] = holder;
+            residencies[slot] = residency;
+            pending[slot] = 0;
+            lastWrite[slot] = null;
+            closed[slot] = false;
+            referenced[slot] = true;
+        }
+
+        // Second-chance clock over the table. Only open slots with nothing in flight qualify: their
+        // balance is exactly the committed row, so dropping them loses nothing. Two sweeps clear every
+        // clock bit, so if no slot qualifies by then, all of them are busy and the stripe grows instead.
+        private void evictIdle() {
+            for (int step = 0; step < keys.length * 2; step++) {
+                int i = hand;
+                hand = (hand + 1) & (keys.length - 1);
+                if (keys[i] == 0 || pending[i] != 0 || closed[i]) {
+                    continue;
+                }
+                if (referenced[i]) {
+                    referenced[i] = false;
+                    continue;
+                }
+                generation++;
+                removeAt(i);
+                return;
+            }
+        }
+
+        private int place(int key) {
+            int mask = keys.length - 1;
+            int i = spread(key) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == 0) {
+                    break;
+                }
+                int home = spread(keys[i]) & mask;
+                boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+                if (movable) {
+                    move(i, hole);
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            balances[hole] = 0;
+            holders[hole] = null;
+            residencies[hole] = 0;
+            pending[hole] = 0;
+            lastWrite[hole] = null;
+            closed[hole] = false;
+            referenced[hole] = false;
+            size--;
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            balances[to] = balances[from];
+            holders[to] = holders[from];
+            residencies[to] = residencies[from];
+            pending[to] = pending[from];
+            lastWrite[to] = lastWrite[from];
+            closed[to] = closed[from];
+            referenced[to] = referenced[from];
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            long[] oldBalances = balances;
+            String[] oldHolders = holders;
+            long[] oldResidencies = residencies;
+            int[] oldPending = pending;
+            CompletableFuture<?>[] oldLastWrite = lastWrite;
+            boolean[] oldClosed = closed;
+            boolean[] oldReferenced = referenced;
+
+            int length = oldKeys.length << 1;
+            keys = new int[length];
+            balances = new long[length];
+            holders = new String[length];
+            residencies = new long[length];
+            pending = new int[length];
+            lastWrite = new CompletableFuture<?>[length];
+            closed = new boolean[length];
+            referenced = new boolean[length];
+            size = 0;
+            hand = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = place(oldKeys[i]);
+                    balances[slot] = oldBalances[i];
+                    holders[slot] = oldHolders[i];
+                    residencies[slot] = oldResidencies[i];
+                    pending[slot] = oldPending[i];
+                    lastWrite[slot] = oldLastWrite[i];
+                    closed[slot] = oldClosed[i];
+                    referenced[slot] = oldReferenced[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.mbank.service;
+
+import com.mbank.model.AccountSnapshot;
+import com.mbank.model.AccountSummary;
+import com.mbank.model.BankAccount;
+import com.mbank.model.Money;
+import com.mbank.model.Transaction;
+import com.mbank.repository.AccountSnapshotRepository;
+import com.mbank.repository.BankAccountRepository;
+import com.mbank.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event-sourced view of the ledger: the transactions journal is the record of truth and an
+ * account's balance is the sum of its journal rows (amount less fee).
+ *
+ * Every {@code mbank.ledger.snapshots.interval} rows an account gets a snapshot in
+ * account_snapshots, so a point-in-time balance or a projection rebuild replays at most one
+ * interval of rows on top of the latest snapshot instead of the whole history.
+ * accounts.balance stays the locked, write-through projection used for funds checks; at start-up
+ * it is checked against the journal and, with {@code rebuild-on-startup=repair}, corrected.
+ *
+ * Enable with {@code mbank.ledger.event-sourced.enabled=true}.
+ */
+@Service
+public class LedgerSnapshotService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerSnapshotService.class);
+
+    // Lower bound for replays of accounts that have no snapshot yet
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Journal dates are stamped before commit, so only rows this old are assumed to be visible
+    // to everyone; a snapshot must never cover a gap a late commit could still fill.
+    private static final long SETTLE_SECONDS = 60;
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${mbank.ledger.event-sourced.enabled:false}")
+    private boolean enabled;
+
+    // off, verify (log drift only) or repair (rewrite accounts.balance from the journal)
+    @Value("${mbank.ledger.event-sourced.rebuild-on-startup:verify}")
+    private String rebuildMode;
+
+    @Value("${mbank.ledger.in-memory.enabled:false}")
+    private boolean inMemoryLedger;
+
+    @Value("${mbank.ledger.snapshots.interval:1000}")
+    private long snapshotInterval;
+
+    @Value("${mbank.ledger.snapshots.check-interval-ms:30000}")
+    private long checkIntervalMs;
+
+    // Accounts with journal rows committed since they were last considered for a snapshot
+    private final Set<Integer> active = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService snapshotter;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ledger-snapshotter");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotActiveQuietly, checkIntervalMs, checkIntervalMs,
+                TimeUnit.MILLISECONDS);
+        log.info("Event-sourced ledger enabled, snapshot every {} journal rows per account", snapshotInterval);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || "off".equalsIgnoreCase(rebuildMode)) {
+            return;
+        }
+        boolean repair = "repair".equalsIgnoreCase(rebuildMode);
+        if (repair && inMemoryLedger) {
+            // The in-memory ledger may already hold balances loaded from the rows we would rewrite
+            log.warn("Projection repair is not supported with the in-memory ledger; verifying only");
+            repair = false;
+        }
+        rebuildProjections(repair);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Called as journal rows are written. Accounts are queued once the surrounding transaction commits.
+    void markActive(Collection<Transaction> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        List<Integer> accountNumbers = new ArrayList<>(rows.size());
+        for (Transaction row : rows) {
+            accountNumbers.add(row.getAccountNumber());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    active.addAll(accountNumbers);
+                }
+            });
+        } else {
+            active.addAll(accountNumbers);
+        }
+    }
+
+    // Balance in cents as of a point in time: latest snapshot at or before it, plus the rows after
+    @Transactional(readOnly = true)
+    public long balanceAt(Integer accountNumber, LocalDateTime asOf) {
+        if (!accountRepository.existsById(accountNumber)) {
+            throw new BankingException(BankingException.Reason.NOT_FOUND, "Account not found");
+        }
+        return replay(accountNumber, asOf, Long.MAX_VALUE).balance;
+    }
+
+    // Snapshots the account if at least one interval of settled rows was appended since its last snapshot
+    @Transactional
+    public boolean snapshotIfDue(Integer accountNumber) {
+        List<Transaction> latest = transactionRepository.findLatestAtOrBefore(
+                accountNumber, LocalDateTime.now().minusSeconds(SETTLE_SECONDS), PageRequest.of(0, 1));
+        if (latest.isEmpty()) {
+            return false;
+        }
+        Transaction head = latest.get(0);
+        Replay replay = replay(accountNumber, head.getTransactionDate(), head.getId());
+        if (replay.rowCount < snapshotInterval) {
+            return false;
+        }
+
+        long eventCount = (replay.snapshot != null ? replay.snapshot.getEventCount() : 0L) + replay.rowCount;
+        snapshotRepository.save(new AccountSnapshot(
+                accountNumber, head.getId(), head.getTransactionDate(), replay.balance, eventCount));
+        return true;
+    }
+
+    // Recomputes every account's balance from the journal and compares it with accounts.balance.
+    // Each account is checked in its own transaction; with repair, under the account's row lock.
+    public int rebuildProjections(boolean repair) {
+        long started = System.nanoTime();
+        int checked = 0;
+        int drifted = 0;
+        Integer after = 0;
+
+        while (true) {
+            List<AccountSummary> page = accountRepository.findSummaryPage(
+                    after, Long.MIN_VALUE, Long.MAX_VALUE, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            for (AccountSummary account : page) {
+                Boolean drift = transactionTemplate.execute(status -> reconcile(account.getAccountNumber(), repair));
+                if (Boolean.TRUE.equals(drift)) {
+                    drifted++;
+                }
+                checked++;
+            }
+            if (page.size() < REBUILD_PAGE_SIZE) {
+                break;
+            }
+            after = page.get(page.size() - 1).getAccountNumber();
+        }
+
+        log.info("Ledger projection rebuild: {} accounts checked, {} {} in {} ms", checked, drifted,
+                repair ? "repaired" : "out of line with the journal",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return drifted;
+    }
+
+    private boolean reconcile(Integer accountNumber, boolean repair) {
+        Long stored = repair
+                ? accountRepository.findByIdForUpdate(accountNumber).map(BankAccount::getBalance).orElse(null)
+                : accountRepository.findBalance(accountNumber).orElse(null);
+        if (stored == null) {
+            return false; // closed since the page was read
+        }
+
+        long projected = replay(accountNumber, LocalDateTime.now(), Long.MAX_VALUE).balance;
+        snapshotIfDue(accountNumber);
+        if (projected == stored) {
+            return false;
+        }
+
+        log.warn("Account {} balance {} does not match journal balance {}", accountNumber,
+                Money.format(stored), Money.format(projected));
+        if (repair) {
+            accountRepository.updateBalance(accountNumber, projected);
+        }
+        return true;
+    }
+
+    private void snapshotActiveQuietly() {
+        List<Integer> accountNumbers = new ArrayList<>(active);
+        for (Integer accountNumber : accountNumbers) {
+            active.remove(accountNumber);
+            try {
+                transactionTemplate.execute(status -> snapshotIfDue(accountNumber));
+            } catch (RuntimeException e) {
+                active.add(accountNumber);
+                log.warn("Snapshot of account {} failed, will retry", accountNumber, e);
+            }
+        }
+    }
+
+    // Latest snapshot at or before (toDate, toId), plus the journal rows after it up to that point
+    private Replay replay(Integer accountNumber, LocalDateTime toDate, long toId) {
+        List<AccountSnapshot> snapshots = snapshotRepository.findLatestAtOrBefore(
+                accountNumber, toDate, PageRequest.of(0, 1));
+        AccountSnapshot snapshot = snapshots.isEmpty() ? null : snapshots.get(0);
+
+        LocalDateTime fromDate = snapshot != null ? snapshot.getLastTransactionDate() : BEGINNING;
+        long fromId = snapshot != null ? snapshot.getLastRowId() : 0L;
+        Object[] tail = transactionRepository.sumJournalBetween(accountNumber, fromDate, fromId, toDate, toId).get(0);
+
+        long rowCount = ((Number) tail[0]).longValue();
+        long balance = (snapshot != null ? snapshot.getBalance() : 0L) + ((Number) tail[1]).longValue();
+        return new Replay(snapshot, rowCount, balance);
+    }
+
+    private static final class Replay {
+        final AccountSnapshot snapshot;
+        final long rowCount;
+        final long balance;
+
+        Replay(AccountSnapshot snapshot, long rowCount, long balance) {
+            this.snapshot = snapshot;
+            this.rowCount = rowCount;
+            this.balance = balance;
+        }
+    }
+}
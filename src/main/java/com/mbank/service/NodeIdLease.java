@@ -0,0 +1,176 @@
+package com.mbank.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The transaction ID node id of this instance, claimed in the database so two running instances
+ * can never share one.
+ *
+ * Each node id is a PostgreSQL advisory lock, held on a dedicated connection for as long as the
+ * instance runs; a crashed instance's session ends and frees its id. With {@code mbank.node-id}
+ * unset the first free id is claimed, starting from a hash of the hostname; a configured id is
+ * locked the same way, and start-up fails if another instance already holds it.
+ *
+ * If the lock connection drops, the id may be claimed elsewhere, so {@link #held()} turns false
+ * (and ID generation stops) until the same id is locked again.
+ */
+@Component
+public class NodeIdLease {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdLease.class);
+
+    // First key of the two-key pg_advisory_lock(int, int); the second is the node id
+    private static final int LOCK_CLASS = 0x6D424E49;
+
+    private static final long CHECK_INTERVAL_MS = 5000;
+
+    private final long configuredNodeId;
+    private final DataSourceProperties dataSourceProperties;
+
+    private Connection connection;
+    private ScheduledExecutorService checker;
+    private long nodeId = -1;
+    private volatile boolean held;
+
+    @Autowired
+    public NodeIdLease(@Value("${mbank.node-id:-1}") long configuredNodeId,
+                       DataSourceProperties dataSourceProperties) {
+        this.configuredNodeId = configuredNodeId;
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    @PostConstruct
+    void acquire() {
+        if (configuredNodeId > TransactionIdGenerator.MAX_NODE) {
+            throw new IllegalStateException("mbank.node-id must be between 0 and " + TransactionIdGenerator.MAX_NODE
+                    + ", got " + configuredNodeId);
+        }
+        try {
+            connection = connect();
+            if (configuredNodeId >= 0) {
+                if (!tryLock(connection, configuredNodeId)) {
+                    connection.close();
+                    throw new IllegalStateException("Transaction ID node id " + configuredNodeId
+                            + " is already in use by another instance; set a different mbank.node-id or leave it unset");
+                }
+                nodeId = configuredNodeId;
+            } else {
+                long start = hostHash();
+                for (long i = 0; i <= TransactionIdGenerator.MAX_NODE && nodeId < 0; i++) {
+                    long candidate = (start + i) & TransactionIdGenerator.MAX_NODE;
+                    if (tryLock(connection, candidate)) {
+                        nodeId = candidate;
+                    }
+                }
+                if (nodeId < 0) {
+                    connection.close();
+                    throw new IllegalStateException("Every transaction ID node id is in use by another instance");
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not claim a transaction ID node id", e);
+        }
+        held = true;
+
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "node-id-lease");
+            t.setDaemon(true);
+            return t;
+        });
+        checker.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        log.info("Claimed transaction ID node id {}", nodeId);
+    }
+
+    @PreDestroy
+    void release() {
+        held = false;
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        try {
+            connection.close(); // session end releases the advisory lock
+        } catch (SQLException e) {
+            log.warn("Closing the node id lock connection failed: {}", e.getMessage());
+        }
+    }
+
+    public long nodeId() {
+        return nodeId;
+    }
+
+    // False while the lock is lost; IDs issued then could collide with another instance's
+    public boolean held() {
+        return held;
+    }
+
+    private void check() {
+        try {
+            if (connection.isValid(2)) {
+                return;
+            }
+        } catch (SQLException ignored) {
+            // treated as lost below
+        }
+
+        if (held) {
+            log.error("Lost the lock on transaction ID node id {}; no IDs are issued until it is reacquired", nodeId);
+            held = false;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+        try {
+            connection = connect();
+            if (tryLock(connection, nodeId)) {
+                log.info("Reacquired transaction ID node id {}", nodeId);
+                held = true;
+            }
+        } catch (SQLException e) {
+            log.warn("Could not reacquire transaction ID node id {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private static boolean tryLock(Connection connection, long candidate) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            statement.setInt(1, LOCK_CLASS);
+            statement.setInt(2, (int) candidate);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    // Where the search for a free id starts, so restarts of one host tend to keep their id
+    private static long hostHash() {
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & TransactionIdGenerator.MAX_NODE;
+        } catch (UnknownHostException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.mbank.service;
+
+import com.mbank.repository.BankAccountRepository;
+import com.mbank.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * ETags for the per-account pages (dashboard and statement), so a reload of an unchanged page can
+ * be answered with 304 Not Modified before any statement query or template rendering.
+ *
+ * A page's version is the account's latest journal row id plus its current balance. The balance
+ * also catches a row that commits late with an older date. Statement ETags add the date range,
+ * filter and page cursor. The dashboard also shows the holder's name and email, so its ETag adds a
+ * profile version (a hash of both) and a profile edit is never answered with a stale 304.
+ *
+ * Disable with {@code mbank.http.etags.enabled=false}.
+ */
+@Service
+public class PageEtagService {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    @Value("${mbank.http.etags.enabled:true}")
+    private boolean enabled;
+
+    // Null when ETags are disabled or the account no longer exists
+    public String dashboardEtag(Integer accountNumber) {
+        String version = version(accountNumber);
+        if (version == null) {
+            return null;
+        }
+        String profile = accountRepository.findMetadata(accountNumber)
+                .map(m -> DigestUtils.md5DigestAsHex((m.getAccountHolder() + "|" + m.getEmail())
+                        .getBytes(StandardCharsets.UTF_8)))
+                .orElse("");
+        return etag("dashboard|" + version + "|" + profile);
+    }
+
+    public String statementEtag(Integer accountNumber, LocalDate startDate, LocalDate endDate,
+                                String typeFilter, String after, String before) {
+        String version = version(accountNumber);
+        if (version == null) {
+            return null;
+        }
+        return etag("statement|" + version + "|" + startDate + "|" + endDate + "|" + typeFilter
+                + "|" + (after != null ? after : "") + "|" + (before != null ? before : ""));
+    }
+
+    private String version(Integer accountNumber) {
+        if (!enabled) {
+            return null;
+        }
+        Long balance = accountRepository.findBalance(accountNumber).orElse(null);
+        if (balance == null) {
+            return null;
+        }
+        return accountNumber + "|" + transactionRepository.findLatestTransactionId(accountNumber) + "|" + balance;
+    }
+
+    // Weak: the same version always renders the same content, but not byte for byte (e.g. "now")
+    private static String etag(String key) {
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
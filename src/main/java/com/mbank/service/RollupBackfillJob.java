@@ -0,0 +1,75 @@
+package com.mbank.service;
+
+import com.mbank.repository.DailyAccountRollupRepository;
+import com.mbank.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Recomputes daily rollups for closed days from the journal.
+ *
+ * Migration V11 already backfilled the history recorded before rollups existed; this job is for
+ * repairing rollups afterwards, e.g. after journal rows were corrected by hand. Runs at start-up
+ * when {@code mbank.rollups.backfill-on-startup=true}. Each calendar month is recomputed in its
+ * own transaction, up to (not including) today, under a table lock that holds off live upserts
+ * until it commits, so an increment for a late row of a closed day is never overwritten.
+ */
+@Component
+public class RollupBackfillJob implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupBackfillJob.class);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private DailyAccountRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${mbank.rollups.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (backfillOnStartup) {
+            backfill();
+        }
+    }
+
+    public void backfill() {
+        LocalDateTime oldest = transactionRepository.findOldestTransactionDate();
+        if (oldest == null) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        LocalDateTime cutoff = LocalDate.now().atStartOfDay();
+        LocalDateTime from = oldest.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        int rows = 0;
+
+        while (from.isBefore(cutoff)) {
+            LocalDateTime monthStart = from;
+            LocalDateTime monthEnd = from.plusMonths(1).isBefore(cutoff) ? from.plusMonths(1) : cutoff;
+            Integer written = transactionTemplate.execute(status -> {
+                rollupRepository.lockAgainstUpserts();
+                return rollupRepository.rebuildRollups(monthStart, monthEnd);
+            });
+            rows += written != null ? written : 0;
+            from = monthEnd;
+        }
+
+        log.info("Rollup backfill complete: {} rollup rows written up to {}", rows, cutoff.toLocalDate());
+    }
+}
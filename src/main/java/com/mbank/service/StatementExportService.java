@@ -0,0 +1,179 @@
+package com.mbank.service;
+
+import com.mbank.model.Money;
+import com.mbank.model.Transaction;
+import com.mbank.repository.BankAccountRepository;
+import com.mbank.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes full statement exports (CSV or OFX) straight from a database cursor.
+ *
+ * Rows are streamed with a JDBC fetch size and detached as soon as they are written, so memory
+ * use stays constant no matter how many transactions the account has.
+ */
+@Service
+public class StatementExportService {
+
+    private static final DateTimeFormatter OFX_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BankAccountRepository accountRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // CSV export: one header line, then one line per transaction, oldest first
+    @Transactional(readOnly = true)
+    public void writeCsv(Integer accountNumber, LocalDateTime startDate, LocalDateTime endDate, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try (Stream<Transaction> rows = transactionRepository.streamForExport(accountNumber, startDate, endDate)) {
+            writer.write("transaction_id,date,type,amount,fee,to_account,description\n");
+
+            Iterator<Transaction> it = rows.iterator();
+            while (it.hasNext()) {
+                Transaction tx = it.next();
+                writer.write(csv(tx.getTransactionId()));
+                writer.write(',');
+                writer.write(String.valueOf(tx.getTransactionDate()));
+                writer.write(',');
+                writer.write(tx.getTransactionType());
+                writer.write(',');
+                writer.write(Money.format(tx.getAmount()));
+                writer.write(',');
+                writer.write(Money.format(tx.getFee()));
+                writer.write(',');
+                writer.write(csv(tx.getToAccount()));
+                writer.write(',');
+                writer.write(csv(tx.getDescription()));
+                writer.write('\n');
+
+                // Keep the persistence context empty; otherwise every row stays reachable until commit
+                entityManager.detach(tx);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // OFX 2 (XML) bank statement export
+    @Transactional(readOnly = true)
+    public void writeOfx(Integer accountNumber, LocalDateTime startDate, LocalDateTime endDate, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long balance = accountRepository.findBalance(accountNumber)
+                .orElseThrow(() -> new BankingException(BankingException.Reason.NOT_FOUND, "Account not found"));
+        String now = LocalDateTime.now().format(OFX_DATE);
+
+        try (Stream<Transaction> rows = transactionRepository.streamForExport(accountNumber, startDate, endDate)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<?OFX OFXHEADER=\"200\" VERSION=\"220\" SECURITY=\"NONE\" OLDFILEUID=\"NONE\" NEWFILEUID=\"NONE\"?>\n");
+            writer.write("<OFX>\n<SIGNONMSGSRSV1><SONRS><STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>");
+            writer.write("<DTSERVER>" + now + "</DTSERVER><LANGUAGE>ENG</LANGUAGE></SONRS></SIGNONMSGSRSV1>\n");
+            writer.write("<BANKMSGSRSV1><STMTTRNRS><TRNUID>0</TRNUID>");
+            writer.write("<STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>\n<STMTRS><CURDEF>ZAR</CURDEF>");
+            writer.write("<BANKACCTFROM><BANKID>MBANK</BANKID><ACCTID>" + accountNumber
+                    + "</ACCTID><ACCTTYPE>CHECKING</ACCTTYPE></BANKACCTFROM>\n");
+            writer.write("<BANKTRANLIST><DTSTART>" + startDate.format(OFX_DATE) + "</DTSTART><DTEND>"
+                    + endDate.format(OFX_DATE) + "</DTEND>\n");
+
+            Iterator<Transaction> it = rows.iterator();
+            while (it.hasNext()) {
+                Transaction tx = it.next();
+                long amount = tx.getAmount();
+                writer.write("<STMTTRN><TRNTYPE>");
+                writer.write(ofxType(tx.getTransactionType(), amount));
+                writer.write("</TRNTYPE><DTPOSTED>");
+                writer.write(tx.getTransactionDate().format(OFX_DATE));
+                writer.write("</DTPOSTED><TRNAMT>");
+                writer.write(Money.format(amount));
+                writer.write("</TRNAMT><FITID>");
+                writer.write(xml(tx.getTransactionId()));
+                writer.write("</FITID><NAME>");
+                writer.write(xml(tx.getTransactionType()));
+                writer.write("</NAME>");
+                if (tx.getDescription() != null && !tx.getDescription().isEmpty()) {
+                    writer.write("<MEMO>");
+                    writer.write(xml(tx.getDescription()));
+                    writer.write("</MEMO>");
+                }
+                writer.write("</STMTTRN>\n");
+
+                // Fees are separate debits in OFX
+                if (tx.getFee() > 0) {
+                    writer.write("<STMTTRN><TRNTYPE>FEE</TRNTYPE><DTPOSTED>");
+                    writer.write(tx.getTransactionDate().format(OFX_DATE));
+                    writer.write("</DTPOSTED><TRNAMT>");
+                    writer.write(Money.format(-tx.getFee()));
+                    writer.write("</TRNAMT><FITID>");
+                    writer.write(xml(tx.getTransactionId()) + "-FEE");
+                    writer.write("</FITID><NAME>FEE</NAME></STMTTRN>\n");
+                }
+
+                entityManager.detach(tx);
+            }
+
+            writer.write("</BANKTRANLIST>\n<LEDGERBAL><BALAMT>" + Money.format(balance) + "</BALAMT><DTASOF>" + now
+                    + "</DTASOF></LEDGERBAL>\n");
+            writer.write("</STMTRS></STMTTRNRS></BANKMSGSRSV1>\n</OFX>\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String ofxType(String type, long amount) {
+        switch (type) {
+            case "DEPOSIT":
+            case "INITIAL_DEPOSIT":
+                return "DEP";
+            case "WITHDRAWAL":
+                return "ATM";
+            case "TRANSFER_DEBIT":
+            case "TRANSFER_CREDIT":
+                return "XFER";
+            default:
+                return amount < 0 ? "DEBIT" : "CREDIT";
+        }
+    }
+
+    // Quotes a text field. A leading =, +, -, @, tab or CR would make a spreadsheet evaluate the
+    // cell as a formula, so such values are prefixed with ' to keep them literal text.
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String xml(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
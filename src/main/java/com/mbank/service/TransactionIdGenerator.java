@@ -0,0 +1,96 @@
+package com.mbank.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake-style transaction ID generator: 41 bits of milliseconds since 2024-01-01, 10 bits of
+ * node id and a 12-bit per-millisecond sequence, rendered in decimal after the type prefix.
+ *
+ * The last issued (timestamp, sequence) pair lives in a single AtomicLong and is advanced with a
+ * CAS loop, so there is no lock and no sleeping. If the wall clock steps backwards the generator
+ * keeps counting from the last timestamp it issued; if a millisecond's 4096 sequence numbers run
+ * out it moves on to the next millisecond early. Either way IDs stay strictly increasing per node.
+ *
+ * Uniqueness across instances rests on the node id, which {@link NodeIdLease} claims in the
+ * database; no IDs are issued while that claim is lost.
+ */
+@Component
+public class TransactionIdGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionIdGenerator.class);
+
+    static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // Null when the node id is fixed by the caller rather than claimed in the database
+    private final NodeIdLease lease;
+
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last issued ID
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public TransactionIdGenerator(NodeIdLease lease) {
+        this(lease.nodeId(), System::currentTimeMillis, lease);
+    }
+
+    // Fixed node id, for generators used outside the application (tests, benchmarks)
+    public TransactionIdGenerator(long nodeId) {
+        this(nodeId, System::currentTimeMillis, null);
+    }
+
+    // Clock is replaceable so tests can step it backwards
+    TransactionIdGenerator(long nodeId, LongSupplier clock) {
+        this(nodeId, clock, null);
+    }
+
+    private TransactionIdGenerator(long nodeId, LongSupplier clock, NodeIdLease lease) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE + ", got " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.lease = lease;
+        log.info("Transaction ID generator using node id {}", nodeId);
+    }
+
+    public String nextId(String prefix) {
+        return prefix + nextLong();
+    }
+
+    public long nextLong() {
+        if (lease != null && !lease.held()) {
+            throw new IllegalStateException("Transactions are temporarily unavailable. Please try again.");
+        }
+        while (true) {
+            long previous = last.get();
+            long now = clock.getAsLong() - EPOCH;
+            long previousMillis = previous >>> SEQUENCE_BITS;
+
+            long next;
+            if (now > previousMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same millisecond, or the clock went backwards: continue from the last issued value.
+                // Sequence overflow carries into the timestamp bits.
+                next = previous + 1;
+            }
+
+            if (last.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+}
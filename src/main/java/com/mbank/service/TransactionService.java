@@ -1,15 +1,30 @@
 package com.mbank.service;
 
 import com.mbank.model.BankAccount;
+import com.mbank.model.DailyAccountRollup;
+import com.mbank.model.StatementRow;
 import com.mbank.model.Transaction;
 import com.mbank.repository.BankAccountRepository;
+import com.mbank.repository.DailyAccountRollupRepository;
 import com.mbank.repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class TransactionService {
@@ -20,27 +35,51 @@ public class TransactionService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private DailyAccountRollupRepository rollupRepository;
+
+    @Autowired
+    private TransactionIdGenerator idGenerator;
+
+    @Autowired
+    private LedgerSnapshotService snapshotService;
+
     // Generate unique transaction ID
     public String generateTransactionId(String prefix) {
-        return prefix + System.currentTimeMillis() + (int)(Math.random() * 1000);
+        return idGenerator.nextId(prefix);
     }
 
     // Record transaction
     @Transactional
-    public Transaction recordTransaction(Integer accountNumber, String type, Double amount,
+    public Transaction recordTransaction(Integer accountNumber, String type, long amount,
                                          String toAccount, String description) {
+        return recordTransaction(accountNumber, type, amount, toAccount, description, null);
+    }
+
+    // Record transaction together with the balance it left the account at
+    @Transactional
+    public Transaction recordTransaction(Integer accountNumber, String type, long amount,
+                                         String toAccount, String description, Long balanceAfter) {
+        Transaction transaction = newTransaction(accountNumber, type, amount, toAccount, description);
+        transaction.setBalanceAfter(balanceAfter);
+        transaction = transactionRepository.save(transaction);
+        updateRollups(List.of(transaction));
+        snapshotService.markActive(List.of(transaction));
+        return transaction;
+    }
 
+    // Build an unsaved transaction with a freshly generated ID
+    public Transaction newTransaction(Integer accountNumber, String type, long amount,
+                                      String toAccount, String description) {
         String transactionId = generateTransactionId(
                 type.equals("DEPOSIT") ? "DPT" :
                         type.equals("WITHDRAWAL") ? "WDR" :
                                 type.equals("TRANSFER_DEBIT") || type.equals("TRANSFER_CREDIT") ? "TRF" : "TXN"
         );
 
-        Transaction transaction = new Transaction(
+        return new Transaction(
                 accountNumber, type, amount, toAccount, description, transactionId
         );
-
-        return transactionRepository.save(transaction);
     }
 
     // Get transactions for account
@@ -49,21 +88,63 @@ public class TransactionService {
     }
 
     @Transactional
-    public Transaction recordTransactionWithFee(Integer accountNumber, String type, Double amount,
+    public Transaction recordTransactionWithFee(Integer accountNumber, String type, long amount,
                                                 String toAccount, String description,
-                                                Double fee, String transactionId) {
+                                                long fee, String transactionId) {
+        Transaction transaction = transactionRepository.save(
+                newTransaction(accountNumber, type, amount, toAccount, description, fee, transactionId));
+        updateRollups(List.of(transaction));
+        snapshotService.markActive(List.of(transaction));
+        return transaction;
+    }
+
+    // Record several transactions at once. IDs come from a pooled sequence, so Hibernate
+    // sends these as one JDBC batch instead of one INSERT round trip per row.
+    @Transactional
+    public List<Transaction> recordTransactions(List<Transaction> transactions) {
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        updateRollups(saved);
+        snapshotService.markActive(saved);
+        return saved;
+    }
+
+    // Fold new journal rows into the daily rollups, in the same database transaction.
+    // Rows sharing an (account, day, type) are combined first, so a batch costs one upsert per key.
+    private void updateRollups(List<Transaction> transactions) {
+        Map<DailyAccountRollup.Key, long[]> deltas = new LinkedHashMap<>();
+        for (Transaction tx : transactions) {
+            DailyAccountRollup.Key key = new DailyAccountRollup.Key(
+                    tx.getAccountNumber(), tx.getTransactionDate().toLocalDate(), tx.getTransactionType());
+            long[] delta = deltas.computeIfAbsent(key, k -> new long[5]);
+            long amount = tx.getAmount();
+            delta[0] += 1;
+            delta[1] += amount;
+            delta[2] += amount < 0 ? -amount : 0;
+            delta[3] += amount > 0 ? amount : 0;
+            delta[4] += tx.getFee();
+        }
+        for (Map.Entry<DailyAccountRollup.Key, long[]> entry : deltas.entrySet()) {
+            DailyAccountRollup.Key key = entry.getKey();
+            long[] delta = entry.getValue();
+            rollupRepository.addToRollup(key.getAccountNumber(), key.getRollupDate(), key.getTransactionType(),
+                    delta[0], delta[1], delta[2], delta[3], delta[4]);
+        }
+    }
 
+    // Build an unsaved transaction with an explicit fee and ID
+    public Transaction newTransaction(Integer accountNumber, String type, long amount,
+                                      String toAccount, String description,
+                                      long fee, String transactionId) {
         Transaction transaction = new Transaction();
         transaction.setAccountNumber(accountNumber);
         transaction.setTransactionType(type);
         transaction.setAmount(amount);
         transaction.setToAccount(toAccount);
         transaction.setDescription(description != null ? description : "");
-        transaction.setFee(fee != null ? fee : 0.0);
+        transaction.setFee(fee);
         transaction.setTransactionId(transactionId);
         transaction.setTransactionDate(LocalDateTime.now());
-
-        return transactionRepository.save(transaction);
+        return transaction;
     }
 
     // Get transactions with date range
@@ -85,43 +166,218 @@ public class TransactionService {
     }
 
     // Get transaction summary for account
+    @Transactional(readOnly = true)
     public TransactionSummary getTransactionSummary(Integer accountNumber,
                                                     LocalDateTime startDate,
                                                     LocalDateTime endDate) {
-        List<Transaction> transactions = getTransactionsByDateRange(accountNumber, startDate, endDate);
+        return getTransactionSummary(accountNumber, startDate, endDate, null);
+    }
 
+    // Get transaction summary for the given transaction types (null = all types).
+    // Whole days inside the range are read from the daily rollups; only the partial days at
+    // either edge are aggregated from the journal, so the cost does not grow with the range.
+    @Transactional(readOnly = true)
+    public TransactionSummary getTransactionSummary(Integer accountNumber,
+                                                    LocalDateTime startDate,
+                                                    LocalDateTime endDate,
+                                                    Set<String> types) {
         TransactionSummary summary = new TransactionSummary();
-        for (Transaction transaction : transactions) {
-            String type = transaction.getTransactionType();
-            double amount = transaction.getAmount();
-            double fee = transaction.getFee();
+
+        LocalDate firstFullDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        LocalDate lastFullDay = endDate.toLocalTime().equals(LocalTime.MAX)
+                ? endDate.toLocalDate() : endDate.toLocalDate().minusDays(1);
+
+        if (firstFullDay.isAfter(lastFullDay)) {
+            accumulate(summary, transactionRepository.summarizeByType(accountNumber, startDate, endDate), types);
+            return summary;
+        }
+
+        accumulate(summary, rollupRepository.summarizeByType(accountNumber, firstFullDay, lastFullDay), types);
+
+        // Timestamps are stored with microsecond precision; stop one microsecond short of midnight
+        LocalDateTime headEnd = firstFullDay.atStartOfDay();
+        if (startDate.isBefore(headEnd)) {
+            accumulate(summary, transactionRepository.summarizeByType(
+                    accountNumber, startDate, headEnd.minusNanos(1000)), types);
+        }
+        LocalDateTime tailStart = lastFullDay.plusDays(1).atStartOfDay();
+        if (!endDate.isBefore(tailStart)) {
+            accumulate(summary, transactionRepository.summarizeByType(accountNumber, tailStart, endDate), types);
+        }
+
+        return summary;
+    }
+
+    // Add per-type rows (type, count, sum(amount), debits, credits, fees) to a summary
+    private static void accumulate(TransactionSummary summary, List<Object[]> rows, Set<String> types) {
+        for (Object[] row : rows) {
+            String type = (String) row[0];
+            if (types != null && !types.contains(type)) {
+                continue;
+            }
+            long count = ((Number) row[1]).longValue();
+            long amount = ((Number) row[2]).longValue();
+            long debits = ((Number) row[3]).longValue();
+            long credits = ((Number) row[4]).longValue();
+            long fees = ((Number) row[5]).longValue();
 
             if (type.equals("DEPOSIT")) {
                 summary.totalDeposits += amount;
             } else if (type.equals("WITHDRAWAL")) {
-                summary.totalWithdrawals += Math.abs(amount);
+                summary.totalWithdrawals += debits + credits;
             } else if (type.startsWith("TRANSFER_")) {
-                if (amount < 0) {
-                    summary.totalTransfers += Math.abs(amount);
-                }
-                summary.totalTransfersOut += (amount < 0) ? Math.abs(amount) : 0;
-                summary.totalTransfersIn += (amount > 0) ? amount : 0;
+                summary.totalTransfers += debits;
+                summary.totalTransfersOut += debits;
+                summary.totalTransfersIn += credits;
             }
-            summary.totalFees += fee;
-            summary.transactionCount++;
+            summary.totalFees += fees;
+            summary.transactionCount += (int) count;
         }
-
-        return summary;
     }
 
-    // Transaction summary
+    // Transaction summary (totals in cents)
     public static class TransactionSummary {
-        public double totalDeposits = 0;
-        public double totalWithdrawals = 0;
-        public double totalTransfers = 0;
-        public double totalTransfersOut = 0;
-        public double totalTransfersIn = 0;
-        public double totalFees = 0;
+        public long totalDeposits = 0;
+        public long totalWithdrawals = 0;
+        public long totalTransfers = 0;
+        public long totalTransfersOut = 0;
+        public long totalTransfersIn = 0;
+        public long totalFees = 0;
         public int transactionCount = 0;
     }
-}
\ No newline at end of file
+
+    // ============ STATEMENT PAGES ============
+
+    public static final int STATEMENT_PAGE_SIZE = 100;
+
+    // Named statement filters and the transaction types each one covers
+    private static final Map<String, Set<String>> STATEMENT_FILTERS = Map.of(
+            "TRANSFER", Set.of("TRANSFER_DEBIT", "TRANSFER_CREDIT"),
+            "MONEY_IN", Set.of("DEPOSIT", "INITIAL_DEPOSIT", "TRANSFER_CREDIT"),
+            "MONEY_OUT", Set.of("WITHDRAWAL", "TRANSFER_DEBIT")
+    );
+
+    // Transaction types behind a statement filter (null = all types). A filter is either
+    // ALL, one of the named groups above, or a comma-separated list of transaction types.
+    public static Set<String> statementTypes(String typeFilter) {
+        if (typeFilter == null || typeFilter.isBlank() || "ALL".equals(typeFilter)) {
+            return null;
+        }
+        Set<String> named = STATEMENT_FILTERS.get(typeFilter);
+        if (named != null) {
+            return named;
+        }
+        Set<String> types = new HashSet<>();
+        for (String type : typeFilter.split(",")) {
+            if (!type.isBlank()) {
+                types.add(type.trim());
+            }
+        }
+        return types.isEmpty() ? null : types;
+    }
+
+    // One statement page, newest first. Pass the nextCursor of the previous page as
+    // "after" to go older, or the previousCursor as "before" to go newer.
+    // The LIMIT runs in the database; only pageSize + 1 rows are ever loaded, as StatementRow
+    // projections rather than managed entities.
+    @Transactional(readOnly = true)
+    public StatementPage getStatementPage(Integer accountNumber,
+                                          LocalDateTime startDate,
+                                          LocalDateTime endDate,
+                                          String typeFilter,
+                                          String after,
+                                          String before) {
+        StatementCursor beforeCursor = StatementCursor.decode(before);
+        StatementCursor afterCursor = beforeCursor == null ? StatementCursor.decode(after) : null;
+        boolean newer = beforeCursor != null;
+
+        StatementCursor cursor = newer ? beforeCursor
+                : afterCursor != null ? afterCursor
+                : new StatementCursor(endDate, Long.MAX_VALUE);
+
+        List<StatementRow> rows = new ArrayList<>(
+                fetchPage(accountNumber, startDate, endDate, typeFilter, cursor, newer, STATEMENT_PAGE_SIZE + 1));
+        boolean more = rows.size() > STATEMENT_PAGE_SIZE;
+        if (more) {
+            rows = rows.subList(0, STATEMENT_PAGE_SIZE);
+        }
+        if (newer) {
+            Collections.reverse(rows);
+        }
+
+        StatementPage page = new StatementPage();
+        page.transactions = rows;
+        if (!rows.isEmpty()) {
+            if (newer ? more : afterCursor != null) {
+                page.previousCursor = StatementCursor.of(rows.get(0)).encode();
+            }
+            if (newer || more) {
+                page.nextCursor = StatementCursor.of(rows.get(rows.size() - 1)).encode();
+            }
+        }
+        return page;
+    }
+
+    private List<StatementRow> fetchPage(Integer accountNumber, LocalDateTime startDate, LocalDateTime endDate,
+                                         String typeFilter, StatementCursor cursor, boolean newer, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        Set<String> types = statementTypes(typeFilter);
+
+        if (types == null) {
+            return newer
+                    ? transactionRepository.findPageNewerThan(accountNumber, startDate, endDate,
+                            cursor.date, cursor.id, pageable)
+                    : transactionRepository.findPageOlderThan(accountNumber, startDate, endDate,
+                            cursor.date, cursor.id, pageable);
+        }
+
+        return newer
+                ? transactionRepository.findPageNewerThanByTypes(accountNumber, types, startDate, endDate,
+                        cursor.date, cursor.id, pageable)
+                : transactionRepository.findPageOlderThanByTypes(accountNumber, types, startDate, endDate,
+                        cursor.date, cursor.id, pageable);
+    }
+
+    // Statement page with keyset tokens (null when there is no page in that direction)
+    public static class StatementPage {
+        public List<StatementRow> transactions;
+        public String nextCursor;
+        public String previousCursor;
+    }
+
+    // Position of a row in (transactionDate, id) order, encoded as an opaque URL-safe token
+    static class StatementCursor {
+        final LocalDateTime date;
+        final long id;
+
+        StatementCursor(LocalDateTime date, long id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        static StatementCursor of(StatementRow row) {
+            return new StatementCursor(row.getTransactionDate(), row.getId());
+        }
+
+        String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Returns null for a missing or malformed token, which means "first page"
+        static StatementCursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new StatementCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+-- Store every money column as a whole number of cents (see com.mbank.model.Money).
+-- Existing rand values are rounded to the nearest cent. Column names are unchanged; the
+-- types change, so this rewrites the tables and must run while the application is stopped.
+ALTER TABLE accounts
+    ALTER COLUMN balance TYPE BIGINT USING ROUND(balance * 100);
+
+UPDATE transactions SET fee = 0 WHERE fee IS NULL;
+ALTER TABLE transactions
+    ALTER COLUMN amount        TYPE BIGINT USING ROUND(amount * 100),
+    ALTER COLUMN fee           TYPE BIGINT USING ROUND(fee * 100),
+    ALTER COLUMN balance_after TYPE BIGINT USING ROUND(balance_after * 100);
+ALTER TABLE transactions
+    ALTER COLUMN fee SET DEFAULT 0,
+    ALTER COLUMN fee SET NOT NULL;
+
+ALTER TABLE daily_account_rollups
+    ALTER COLUMN amount_total TYPE BIGINT USING ROUND(amount_total * 100),
+    ALTER COLUMN debit_total  TYPE BIGINT USING ROUND(debit_total * 100),
+    ALTER COLUMN credit_total TYPE BIGINT USING ROUND(credit_total * 100),
+    ALTER COLUMN fee_total    TYPE BIGINT USING ROUND(fee_total * 100);
+
+ALTER TABLE idempotency_keys
+    ALTER COLUMN amount      TYPE BIGINT USING ROUND(amount * 100),
+    ALTER COLUMN old_balance TYPE BIGINT USING ROUND(old_balance * 100),
+    ALTER COLUMN new_balance TYPE BIGINT USING ROUND(new_balance * 100),
+    ALTER COLUMN fee         TYPE BIGINT USING ROUND(fee * 100),
+    ALTER COLUMN total_debit TYPE BIGINT USING ROUND(total_debit * 100);
+
+-- Snapshots are derived from the journal; drop them rather than round them, so the next ones
+-- are taken from the converted rows
+DELETE FROM account_snapshots;
+ALTER TABLE account_snapshots
+    ALTER COLUMN balance TYPE BIGINT;
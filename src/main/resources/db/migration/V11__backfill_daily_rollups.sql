@@ -0,0 +1,23 @@
+-- Build daily_account_rollups for every journal row recorded before rollups were maintained,
+-- so getTransactionSummary counts the full history without an opt-in backfill.
+-- The SHARE ROW EXCLUSIVE lock waits for any transaction that has already upserted a rollup
+-- and holds off new upserts until this commits. Every journal row committed so far is then
+-- counted here exactly once, and rows committed later are added on top by the live upserts.
+LOCK TABLE daily_account_rollups IN SHARE ROW EXCLUSIVE MODE;
+
+INSERT INTO daily_account_rollups (account_number, rollup_date, transaction_type,
+                                   tx_count, amount_total, debit_total, credit_total, fee_total)
+SELECT account_number, CAST(transaction_date AS date), transaction_type, COUNT(*),
+       COALESCE(SUM(amount), 0),
+       COALESCE(SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END), 0),
+       COALESCE(SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), 0),
+       COALESCE(SUM(fee), 0)
+FROM transactions
+WHERE transaction_date IS NOT NULL
+GROUP BY account_number, CAST(transaction_date AS date), transaction_type
+ON CONFLICT (account_number, rollup_date, transaction_type) DO UPDATE SET
+    tx_count     = EXCLUDED.tx_count,
+    amount_total = EXCLUDED.amount_total,
+    debit_total  = EXCLUDED.debit_total,
+    credit_total = EXCLUDED.credit_total,
+    fee_total    = EXCLUDED.fee_total;
@@ -0,0 +1,43 @@
+-- Baseline schema, matching what spring.jpa.hibernate.ddl-auto=update used to create.
+-- Written with IF NOT EXISTS so it applies cleanly both to empty databases and to databases
+-- that were created by Hibernate before migrations were introduced.
+
+CREATE TABLE IF NOT EXISTS accounts (
+    account_number INTEGER      NOT NULL PRIMARY KEY,
+    account_holder VARCHAR(255) NOT NULL,
+    balance        FLOAT(53)    NOT NULL,
+    email          VARCHAR(255) NOT NULL UNIQUE,
+    password       VARCHAR(255) NOT NULL,
+    created_at     TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id               BIGINT       NOT NULL PRIMARY KEY,
+    account_number   INTEGER      NOT NULL,
+    transaction_type VARCHAR(255) NOT NULL,
+    amount           FLOAT(53)    NOT NULL,
+    to_account       VARCHAR(255),
+    description      VARCHAR(255),
+    fee              FLOAT(53),
+    transaction_date TIMESTAMP(6),
+    transaction_id   VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE SEQUENCE IF NOT EXISTS transactions_seq START WITH 1 INCREMENT BY 50;
+
+-- Journal IDs used to come from an identity column; move the sequence past them
+SELECT setval('transactions_seq', GREATEST(
+        (SELECT COALESCE(MAX(id), 1) FROM transactions),
+        (SELECT last_value FROM transactions_seq)));
+
+CREATE TABLE IF NOT EXISTS daily_account_rollups (
+    account_number   INTEGER      NOT NULL,
+    rollup_date      DATE         NOT NULL,
+    transaction_type VARCHAR(255) NOT NULL,
+    tx_count         BIGINT       NOT NULL,
+    amount_total     FLOAT(53)    NOT NULL,
+    debit_total      FLOAT(53)    NOT NULL,
+    credit_total     FLOAT(53)    NOT NULL,
+    fee_total        FLOAT(53)    NOT NULL,
+    PRIMARY KEY (account_number, rollup_date, transaction_type)
+);
@@ -0,0 +1,17 @@
+-- Composite indexes matching the access paths of TransactionRepository.
+-- CONCURRENTLY keeps the journal writable while they build; Flyway runs this file outside a
+-- transaction because every statement in it is non-transactional.
+
+-- findByAccountNumber*, date-range statements, keyset pages (both directions), export stream,
+-- latest-transaction lookup and summarizeByType: account_number = ? ordered/ranged on
+-- (transaction_date, id). Scanned backwards for the DESC queries.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_account_date_id
+    ON transactions (account_number, transaction_date, id);
+
+-- Type-filtered statements and keyset pages: account_number = ? AND transaction_type = ?
+-- ordered/ranged on (transaction_date, id).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_account_type_date_id
+    ON transactions (account_number, transaction_type, transaction_date, id);
+
+-- existsByTransactionId uses the unique constraint on transaction_id.
+-- daily_account_rollups queries use its primary key (account_number, rollup_date, transaction_type).
@@ -0,0 +1,4 @@
+-- Account numbers are handed out in blocks reserved from this sequence (see AccountNumberAllocator).
+-- INCREMENT BY is the block size and must match AccountNumberAllocator.BLOCK_SIZE.
+-- New numbers are 8+ digits, so they can never clash with the legacy random 6-digit numbers.
+CREATE SEQUENCE IF NOT EXISTS account_number_seq START WITH 10000000 INCREMENT BY 100;
@@ -0,0 +1,3 @@
+-- Trigram matching for account search (trusted extension, the database owner can create it).
+-- Kept apart from V6 because Flyway cannot mix this with CREATE INDEX CONCURRENTLY.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,15 @@
+-- Indexes for BankAccountRepository.search*. Built CONCURRENTLY so registrations keep working.
+
+-- Name contains-search and similarity ranking (terms of 3+ characters)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_accounts_holder_trgm
+    ON accounts USING gin (lower(account_holder) gin_trgm_ops);
+
+-- Name prefix search for 1-2 character terms
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_accounts_holder_prefix
+    ON accounts (lower(account_holder) text_pattern_ops);
+
+-- Email prefix search
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_accounts_email_prefix
+    ON accounts (lower(email) text_pattern_ops);
+
+-- Account number lookups use the primary key.
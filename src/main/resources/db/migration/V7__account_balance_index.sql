@@ -0,0 +1,3 @@
+-- Keyset order for the admin listing sorted by balance (AccountAdminService, sort=balance)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_accounts_balance_number
+    ON accounts (balance DESC, account_number);
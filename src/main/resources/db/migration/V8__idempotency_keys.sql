@@ -0,0 +1,23 @@
+-- Outcomes of money-moving requests sent with an idempotency key (see IdempotencyService).
+-- The row is claimed and filled in the same transaction as the balance change, so the primary
+-- key guarantees a request is applied at most once; a concurrent duplicate blocks on the
+-- uncommitted row until the first execution commits or rolls back.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    account_number    INTEGER      NOT NULL,
+    idempotency_key   VARCHAR(100) NOT NULL,
+    operation         VARCHAR(20)  NOT NULL,
+    amount            FLOAT(53)    NOT NULL,
+    to_account        INTEGER,
+    old_balance       FLOAT(53),
+    new_balance       FLOAT(53),
+    fee               FLOAT(53),
+    total_debit       FLOAT(53),
+    to_account_holder VARCHAR(255),
+    transaction_id    VARCHAR(255),
+    transaction_date  TIMESTAMP(6),
+    created_at        TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (account_number, idempotency_key)
+);
+
+-- Retention purge
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,21 @@
+-- Event-sourced ledger support (see LedgerSnapshotService).
+-- Every journal row now carries the balance it left behind, and account_snapshots holds a
+-- periodic checkpoint of each account's balance so replays start from the latest snapshot
+-- instead of the first event.
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS balance_after FLOAT(53);
+
+-- A snapshot covers every journal row of the account up to and including
+-- (last_transaction_date, last_row_id), in the (transaction_date, id) order the journal is read in.
+CREATE TABLE IF NOT EXISTS account_snapshots (
+    account_number        INTEGER      NOT NULL,
+    last_row_id           BIGINT       NOT NULL,
+    last_transaction_date TIMESTAMP(6) NOT NULL,
+    balance               FLOAT(53)    NOT NULL,
+    event_count           BIGINT       NOT NULL,
+    created_at            TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (account_number, last_row_id)
+);
+
+-- Latest snapshot at or before a point in time
+CREATE INDEX IF NOT EXISTS idx_account_snapshots_account_date
+    ON account_snapshots (account_number, last_transaction_date DESC, last_row_id DESC);
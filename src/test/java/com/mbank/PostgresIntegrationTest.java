@@ -0,0 +1,63 @@
+package com.mbank;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Base for tests that need the real schema: the full application context against PostgreSQL,
+ * migrated by Flyway exactly as in production.
+ *
+ * One Testcontainers PostgreSQL is started for the whole run and shared by every subclass, so
+ * the cached Spring context always points at a live database. Without Docker the tests are
+ * skipped; pass {@code -Dmbank.test.jdbc-url=jdbc:postgresql://...} (and optionally
+ * {@code mbank.test.username} / {@code mbank.test.password}) to run them against an existing,
+ * empty database instead.
+ */
+@SpringBootTest
+@ExtendWith(PostgresIntegrationTest.DatabaseAvailable.class)
+public abstract class PostgresIntegrationTest {
+
+    private static final String EXTERNAL_URL = System.getProperty("mbank.test.jdbc-url");
+
+    private static PostgreSQLContainer<?> postgres;
+
+    // An extension rather than @EnabledIf, which subclasses would not inherit
+    static class DatabaseAvailable implements ExecutionCondition {
+
+        @Override
+        public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+            return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable()
+                    ? ConditionEvaluationResult.enabled("PostgreSQL available")
+                    : ConditionEvaluationResult.disabled("No Docker and no mbank.test.jdbc-url");
+        }
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            registry.add("spring.datasource.username", () -> System.getProperty("mbank.test.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("mbank.test.password", "postgres"));
+            return;
+        }
+        PostgreSQLContainer<?> container = container();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start(); // stopped by the Testcontainers reaper when the JVM exits
+        }
+        return postgres;
+    }
+}
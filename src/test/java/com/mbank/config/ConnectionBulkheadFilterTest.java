@@ -0,0 +1,64 @@
+package com.mbank.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ConnectionBulkheadFilterTest {
+
+    @Test
+    void requestPermitIsReleasedWhenTheRequestReturns() throws Exception {
+        ConnectionBulkheadFilter filter = new ConnectionBulkheadFilter(1, 1, 10);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/dashboard"), response, new MockFilterChain());
+
+        assertNull(response.getForwardedUrl());
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void exhaustedBulkheadForwardsToTheBusyPage() throws Exception {
+        ConnectionBulkheadFilter filter = new ConnectionBulkheadFilter(1, 1, 10);
+        MockHttpServletResponse blocked = new MockHttpServletResponse();
+
+        // The first request is still inside the chain when the second arrives
+        filter.doFilter(new MockHttpServletRequest("GET", "/dashboard"), new MockHttpServletResponse(),
+                (request, response) -> filter.doFilter(new MockHttpServletRequest("POST", "/deposit"), blocked,
+                        new MockFilterChain()));
+
+        assertEquals(ConnectionBulkheadFilter.BUSY_PATH, blocked.getForwardedUrl());
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void streamingExportHoldsItsOwnPermitUntilTheResponseCompletes() throws Exception {
+        ConnectionBulkheadFilter filter = new ConnectionBulkheadFilter(1, 1, 10);
+        MockHttpServletRequest export = new MockHttpServletRequest("GET", "/statement/export");
+        export.setAsyncSupported(true);
+
+        filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        // Still streaming: the export permit is taken, interactive pages are unaffected
+        assertEquals(0, filter.availableExportPermits());
+        assertEquals(1, filter.availablePermits());
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/admin/accounts/export"), second, new MockFilterChain());
+        assertEquals(ConnectionBulkheadFilter.BUSY_PATH, second.getForwardedUrl());
+
+        export.getAsyncContext().complete();
+        assertEquals(1, filter.availableExportPermits());
+    }
+
+    @Test
+    void excludedPathsNeedNoPermit() throws Exception {
+        ConnectionBulkheadFilter filter = new ConnectionBulkheadFilter(1, 1, 10);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/ping"), new MockHttpServletResponse(),
+                (request, response) -> assertEquals(1, filter.availablePermits()));
+    }
+}
@@ -0,0 +1,288 @@
+package com.mbank.repository;
+
+import com.mbank.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every per-account and search query the application issues against a seeded database,
+ * captures the SQL Hibernate actually sends together with its bound parameters, and fails if
+ * {@code EXPLAIN} of any of them plans a sequential scan.
+ *
+ * Not covered: whole-table batch statements that are meant to read everything (the admin
+ * export streams, {@code findOldestTransactionDate} and {@code rebuildRollups}).
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest extends PostgresIntegrationTest {
+
+    // Seeded rows live in the legacy 6-digit account range, below anything the sequence hands out.
+    // Much smaller and the planner rightly prefers scanning accounts to the trigram index.
+    private static final int ACCOUNTS = 100_000;
+    private static final int TRANSACTIONS = 400_000;
+    private static final int ACCOUNT = 4_242;
+
+    private static final LocalDateTime MONTH_START = LocalDate.now().minusMonths(3).withDayOfMonth(1).atStartOfDay();
+    private static final LocalDateTime MONTH_END = MONTH_START.plusMonths(1).minusNanos(1000);
+    private static final PageRequest PAGE = PageRequest.of(0, 20);
+    private static final PageRequest ONE = PageRequest.of(0, 1);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionRepository transactions;
+
+    @Autowired
+    private BankAccountRepository accounts;
+
+    @Autowired
+    private DailyAccountRollupRepository rollups;
+
+    @Autowired
+    private AccountSnapshotRepository snapshots;
+
+    @BeforeAll
+    void seed() {
+        removeSeed();
+        jdbc.update("INSERT INTO accounts (account_number, account_holder, balance, email, password, created_at) " +
+                "SELECT i, 'Seed ' || substr(md5(i::text), 1, 12), (i * 7919) % 10000000, " +
+                "substr(md5(i::text), 13, 12) || '@plan.test', 'x', now() " +
+                "FROM generate_series(1, ?) i", ACCOUNTS);
+        jdbc.update("INSERT INTO transactions (id, account_number, transaction_type, amount, fee, balance_after, " +
+                "transaction_date, transaction_id) " +
+                "SELECT -i, 1 + i % ?, (ARRAY['DEPOSIT', 'WITHDRAWAL', 'TRANSFER_DEBIT', 'TRANSFER_CREDIT'])[1 + i % 4], " +
+                "CASE WHEN i % 4 IN (1, 2) THEN -1000 ELSE 1000 END, 0, 0, " +
+                "now() - (i % 730) * interval '1 day' - (i % 86400) * interval '1 second', 'PLAN' || i " +
+                "FROM generate_series(1, ?) i", ACCOUNTS, TRANSACTIONS);
+        jdbc.update("INSERT INTO daily_account_rollups (account_number, rollup_date, transaction_type, tx_count, " +
+                "amount_total, debit_total, credit_total, fee_total) " +
+                "SELECT account_number, CAST(transaction_date AS date), transaction_type, COUNT(*), SUM(amount), 0, 0, 0 " +
+                "FROM transactions WHERE transaction_id LIKE 'PLAN%' " +
+                "GROUP BY account_number, CAST(transaction_date AS date), transaction_type " +
+                "ON CONFLICT DO NOTHING");
+        jdbc.update("INSERT INTO account_snapshots (account_number, last_row_id, last_transaction_date, balance, " +
+                "event_count, created_at) " +
+                "SELECT 1 + i % ?, -i, now() - (i % 730) * interval '1 day', 0, i, now() " +
+                "FROM generate_series(1, ?) i", ACCOUNTS, ACCOUNTS * 5);
+        jdbc.execute("ANALYZE accounts");
+        jdbc.execute("ANALYZE transactions");
+        jdbc.execute("ANALYZE daily_account_rollups");
+        jdbc.execute("ANALYZE account_snapshots");
+    }
+
+    @AfterAll
+    void removeSeed() {
+        jdbc.update("DELETE FROM account_snapshots WHERE last_row_id < 0");
+        jdbc.update("DELETE FROM daily_account_rollups WHERE account_number <= ?", ACCOUNTS);
+        jdbc.update("DELETE FROM transactions WHERE transaction_id LIKE 'PLAN%'");
+        jdbc.update("DELETE FROM accounts WHERE email LIKE '%@plan.test'");
+    }
+
+    @TestFactory
+    Stream<DynamicTest> transactionQueriesUseIndexes() {
+        List<String> types = List.of("DEPOSIT", "WITHDRAWAL");
+        return Stream.of(
+                plan("findByAccountNumber", () -> transactions.findByAccountNumber(ACCOUNT)),
+                plan("findByAccountNumberOrderByTransactionDateDesc",
+                        () -> transactions.findByAccountNumberOrderByTransactionDateDesc(ACCOUNT)),
+                plan("findByAccountNumberAndTransactionDateBetween",
+                        () -> transactions.findByAccountNumberAndTransactionDateBetweenOrderByTransactionDateDesc(
+                                ACCOUNT, MONTH_START, MONTH_END)),
+                plan("findByAccountNumberAndTransactionType",
+                        () -> transactions.findByAccountNumberAndTransactionTypeOrderByTransactionDateDesc(
+                                ACCOUNT, "DEPOSIT")),
+                plan("findByAccountNumberAndTransactionTypeAndTransactionDateBetween",
+                        () -> transactions.findByAccountNumberAndTransactionTypeAndTransactionDateBetweenOrderByTransactionDateDesc(
+                                ACCOUNT, "DEPOSIT", MONTH_START, MONTH_END)),
+                plan("findLatestAtOrBefore", () -> transactions.findLatestAtOrBefore(ACCOUNT, MONTH_END, ONE)),
+                plan("sumJournalBetween",
+                        () -> transactions.sumJournalBetween(ACCOUNT, MONTH_START, 0L, MONTH_END, 0L)),
+                plan("findPageOlderThan", () -> transactions.findPageOlderThan(
+                        ACCOUNT, MONTH_START, MONTH_END, MONTH_END, Long.MAX_VALUE, PAGE)),
+                plan("findPageNewerThan", () -> transactions.findPageNewerThan(
+                        ACCOUNT, MONTH_START, MONTH_END, MONTH_START, Long.MIN_VALUE, PAGE)),
+                plan("findPageOlderThanByTypes", () -> transactions.findPageOlderThanByTypes(
+                        ACCOUNT, types, MONTH_START, MONTH_END, MONTH_END, Long.MAX_VALUE, PAGE)),
+                plan("findPageNewerThanByTypes", () -> transactions.findPageNewerThanByTypes(
+                        ACCOUNT, types, MONTH_START, MONTH_END, MONTH_START, Long.MIN_VALUE, PAGE)),
+                plan("summarizeByType", () -> transactions.summarizeByType(ACCOUNT, MONTH_START, MONTH_END)),
+                plan("streamForExport", () -> {
+                    try (Stream<?> rows = transactions.streamForExport(ACCOUNT, MONTH_START, MONTH_END)) {
+                        rows.findFirst();
+                    }
+                }),
+                plan("existsByTransactionId", () -> transactions.existsByTransactionId("PLAN4242")),
+                plan("findTopByAccountNumberOrderByTransactionDateDesc",
+                        () -> transactions.findTopByAccountNumberOrderByTransactionDateDesc(ACCOUNT)),
+                plan("findLatestTransactionId", () -> transactions.findLatestTransactionId(ACCOUNT)));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> accountQueriesUseIndexes() {
+        String email = jdbc.queryForObject("SELECT email FROM accounts WHERE account_number = ?", String.class, ACCOUNT);
+        String holder = jdbc.queryForObject("SELECT lower(account_holder) FROM accounts WHERE account_number = ?",
+                String.class, ACCOUNT);
+        String term = holder.substring(5, 9);
+        return Stream.of(
+                plan("findByEmail", () -> accounts.findByEmail(email)),
+                plan("findByEmailAndPassword", () -> accounts.findByEmailAndPassword(email, "x")),
+                plan("existsByEmail", () -> accounts.existsByEmail(email)),
+                plan("findMetadata", () -> accounts.findMetadata(ACCOUNT)),
+                plan("findBalance", () -> accounts.findBalance(ACCOUNT)),
+                plan("creditBalance", () -> accounts.creditBalance(ACCOUNT, 1)),
+                plan("debitBalance", () -> accounts.debitBalance(ACCOUNT, 1)),
+                plan("findByIdForUpdate", () -> accounts.findByIdForUpdate(ACCOUNT)),
+                plan("findAllByIdForUpdate", () -> accounts.findAllByIdForUpdate(List.of(ACCOUNT, ACCOUNT + 1))),
+                plan("findExistingAccountNumbers",
+                        () -> accounts.findExistingAccountNumbers(List.of(ACCOUNT, ACCOUNT + 1))),
+                plan("searchByHolderContaining", () -> accounts.searchByHolderContaining("%" + term + "%", term, PAGE)),
+                plan("searchByHolderPrefix", () -> accounts.searchByHolderPrefix(holder.substring(0, 7) + "%", PAGE)),
+                plan("searchByEmailPrefix", () -> accounts.searchByEmailPrefix(email.substring(0, 2) + "%", PAGE)),
+                plan("findSummaryPage", () -> accounts.findSummaryPage(ACCOUNT, 0, Long.MAX_VALUE, PAGE)),
+                plan("findSummaryPageByBalance",
+                        () -> accounts.findSummaryPageByBalance(5_000_000, ACCOUNT, 0, Long.MAX_VALUE, PAGE)));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> ledgerQueriesUseIndexes() {
+        return Stream.of(
+                plan("DailyAccountRollupRepository.summarizeByType", () -> rollups.summarizeByType(
+                        ACCOUNT, MONTH_START.toLocalDate(), MONTH_END.toLocalDate())),
+                plan("AccountSnapshotRepository.findLatestAtOrBefore",
+                        () -> snapshots.findLatestAtOrBefore(ACCOUNT, MONTH_END, ONE)));
+    }
+
+    // Runs the query in a rolled-back transaction with capture on, then EXPLAINs each statement it sent
+    private DynamicTest plan(String name, Runnable query) {
+        return DynamicTest.dynamicTest(name, () -> {
+            List<CapturedStatement> captured = new ArrayList<>();
+            CAPTURE.set(captured);
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    query.run();
+                    status.setRollbackOnly();
+                });
+            } finally {
+                CAPTURE.remove();
+            }
+
+            assertFalse(captured.isEmpty(), name + " sent no SQL");
+            for (CapturedStatement statement : captured) {
+                String plan = explain(statement);
+                assertFalse(plan.contains("Seq Scan"), name + " plans a sequential scan:\n" + statement.sql + "\n" + plan);
+            }
+        });
+    }
+
+    private String explain(CapturedStatement statement) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql)) {
+            for (Object[] call : statement.parameters) {
+                ((Method) call[0]).invoke(explain, (Object[]) call[1]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = explain.executeQuery()) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    // ============ SQL CAPTURE ============
+    // Wraps the application's DataSource so statements prepared while CAPTURE is set on the
+    // calling thread are recorded, with every setXxx(index, value) call, as they execute.
+
+    private static final ThreadLocal<List<CapturedStatement>> CAPTURE = new ThreadLocal<>();
+
+    private record CapturedStatement(String sql, List<Object[]> parameters) {
+    }
+
+    @TestConfiguration
+    static class CaptureConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? wrap(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static <T> T wrap(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Connection connection && method.getName().equals("getConnection")) {
+                        return wrap(Connection.class, connection);
+                    }
+                    if (result instanceof PreparedStatement prepared && method.getName().startsWith("prepare")) {
+                        return recording(prepared, (String) args[0]);
+                    }
+                    return result;
+                }));
+    }
+
+    private static PreparedStatement recording(PreparedStatement target, String sql) {
+        List<Object[]> parameters = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parameters.add(new Object[]{method, args.clone()});
+                    } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                        List<CapturedStatement> captured = CAPTURE.get();
+                        if (captured != null) {
+                            captured.add(new CapturedStatement(sql, List.copyOf(parameters)));
+                        }
+                    } else if (name.equals("clearParameters")) {
+                        parameters.clear();
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
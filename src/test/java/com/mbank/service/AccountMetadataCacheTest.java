@@ -0,0 +1,41 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import com.mbank.model.BankAccount;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A read racing an uncommitted profile update must not pin the old metadata in the cache
+class AccountMetadataCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readBetweenUpdateAndCommitIsNotCachedPastTheCommit() {
+        String email = UUID.randomUUID() + "@cache.test";
+        int accountNumber = accountService.registerAccount("Old Name", email, "secret").getAccountNumber();
+        assertEquals("Old Name", accountService.getAccountHolderName(accountNumber));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            BankAccount account = accountService.getAccount(accountNumber).orElseThrow();
+            account.setAccountHolder("New Name");
+            accountService.updateAccount(account);
+            // Another request, outside this transaction, still reads the committed row
+            String seen = CompletableFuture.supplyAsync(() -> accountService.getAccountHolderName(accountNumber)).join();
+            assertEquals("Old Name", seen);
+        });
+
+        assertEquals("New Name", accountService.getAccountHolderName(accountNumber));
+    }
+}
@@ -0,0 +1,116 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import com.mbank.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Deposits and withdrawals hammering one account: the conditional UPDATE must never overdraw it
+class BalanceUpdateContentionTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 128;
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void concurrentWithdrawalsNeverOverdraw() throws Exception {
+        int accountNumber = newAccount();
+        long amount = 100_00;
+        int affordable = 50;
+        accountService.deposit(accountNumber, affordable * amount);
+
+        List<Boolean> outcomes = runConcurrently(THREADS, () -> {
+            try {
+                accountService.withdraw(accountNumber, amount);
+                return true;
+            } catch (BankingException e) {
+                assertEquals(BankingException.Reason.INSUFFICIENT_FUNDS, e.getReason());
+                return false;
+            }
+        });
+
+        long succeeded = outcomes.stream().filter(Boolean::booleanValue).count();
+        assertEquals(affordable, succeeded);
+        assertEquals(0, accountService.getBalance(accountNumber));
+        assertEquals(affordable, transactionRepository
+                .findByAccountNumberAndTransactionTypeOrderByTransactionDateDesc(accountNumber, "WITHDRAWAL").size());
+    }
+
+    @Test
+    void concurrentDepositsAndWithdrawalsAllLand() throws Exception {
+        int accountNumber = newAccount();
+        accountService.deposit(accountNumber, 1_000_00);
+
+        // Half the threads deposit R7, half withdraw R5; with the float up front none can fail
+        AtomicInteger next = new AtomicInteger();
+        runConcurrently(THREADS, () -> next.getAndIncrement() % 2 == 0
+                ? accountService.deposit(accountNumber, 7_00)
+                : accountService.withdraw(accountNumber, 5_00));
+
+        assertEquals(1_000_00 + (THREADS / 2) * 7_00 - (THREADS / 2) * 5_00, accountService.getBalance(accountNumber));
+    }
+
+    @Test
+    void withdrawalThroughputOnOneAccount() throws Exception {
+        int accountNumber = newAccount();
+        int perThread = 10;
+        accountService.deposit(accountNumber, THREADS * perThread * 1_00L);
+
+        long started = System.nanoTime();
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < perThread; i++) {
+                accountService.withdraw(accountNumber, 1_00);
+            }
+            return true;
+        });
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        assertEquals(0, accountService.getBalance(accountNumber));
+        System.out.printf("%d withdrawals from one account on %d threads: %.0f/s%n",
+                THREADS * perThread, THREADS, THREADS * perThread / seconds);
+    }
+
+    private int newAccount() {
+        String email = UUID.randomUUID() + "@contention.test";
+        return accountService.registerAccount("Contention Test", email, "secret").getAccountNumber();
+    }
+
+    // Runs the task once on each of n threads, all released at the same moment
+    private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>(threads);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import com.mbank.model.IdempotencyRecord;
+import com.mbank.model.Transaction;
+import com.mbank.repository.IdempotencyRecordRepository;
+import com.mbank.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// With the in-memory ledger the movement commits on the writer thread; a retried key must still apply once
+@TestPropertySource(properties = "mbank.ledger.in-memory.enabled=true")
+class IdempotencyLedgerTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRepository;
+
+    @Test
+    void repeatedDepositIsAppliedOnce() {
+        int accountNumber = newAccount();
+        String key = UUID.randomUUID().toString();
+
+        BankAccountService.BalanceChange first = idempotencyService.deposit(accountNumber, 10_00, key);
+        BankAccountService.BalanceChange retry = idempotencyService.deposit(accountNumber, 10_00, key);
+
+        assertEquals(first.transactionId, retry.transactionId);
+        assertEquals(10_00, accountService.getBalance(accountNumber));
+        assertAppliedOnce(accountNumber, key, "DEPOSIT", first.transactionId);
+    }
+
+    @Test
+    void concurrentRetriesOfOneTransferAreAppliedOnce() throws Exception {
+        int from = newAccount();
+        int to = newAccount();
+        accountService.deposit(from, 1_000_00);
+        String key = UUID.randomUUID().toString();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<String>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return idempotencyService.transfer(from, to, 100_00, "rent", key).transactionId;
+                }));
+            }
+            start.countDown();
+            String transactionId = futures.get(0).get();
+            for (Future<String> future : futures) {
+                assertEquals(transactionId, future.get());
+            }
+
+            assertEquals(100_00, accountService.getBalance(to));
+            assertAppliedOnce(from, key, "TRANSFER_DEBIT", transactionId);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // One journal row for the key, and the committed key row points at it
+    private void assertAppliedOnce(int accountNumber, String key, String type, String transactionId) {
+        List<Transaction> rows = transactionRepository
+                .findByAccountNumberAndTransactionTypeOrderByTransactionDateDesc(accountNumber, type);
+        assertEquals(1, rows.size());
+        assertEquals(transactionId, rows.get(0).getTransactionId());
+
+        IdempotencyRecord stored = idempotencyRepository
+                .findById(new IdempotencyRecord.Key(accountNumber, key)).orElseThrow();
+        assertNotNull(stored.getTransactionDate());
+        assertEquals(transactionId, stored.getTransactionId());
+    }
+
+    private int newAccount() {
+        return accountService.registerAccount("Ledger Test", UUID.randomUUID() + "@ledger.test", "secret")
+                .getAccountNumber();
+    }
+}
@@ -0,0 +1,44 @@
+package com.mbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A ledger stripe stays within its capacity, and only ever evicts slots with nothing in flight
+class LedgerStripeTest {
+
+    @Test
+    void residentAccountsStayWithinCapacity() {
+        LedgerEngine.Stripe stripe = new LedgerEngine.Stripe(8);
+        for (int account = 1; account <= 1000; account++) {
+            stripe.insert(account, account * 100L, "Holder " + account, account);
+            assertTrue(stripe.size <= 8);
+        }
+        assertEquals(16, stripe.keys.length);
+
+        int slot = stripe.indexOf(1000);
+        assertEquals(1000 * 100L, stripe.balances[slot]);
+        assertEquals("Holder 1000", stripe.holders[slot]);
+    }
+
+    @Test
+    void slotsWithMovementsInFlightAreNeverEvicted() {
+        LedgerEngine.Stripe stripe = new LedgerEngine.Stripe(4);
+        for (int account = 1; account <= 4; account++) {
+            stripe.insert(account, 0, "Busy", account);
+            stripe.pending[stripe.indexOf(account)] = 1;
+        }
+
+        stripe.insert(5, 0, "Idle", 5);
+        for (int account = 1; account <= 4; account++) {
+            assertTrue(stripe.indexOf(account) >= 0);
+        }
+        assertEquals(5, stripe.size);
+
+        // The first idle slot becomes the victim once the stripe is over capacity again
+        stripe.insert(6, 0, "Idle", 6);
+        assertEquals(-1, stripe.indexOf(5));
+        assertTrue(stripe.indexOf(6) >= 0);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A second instance against the same database never gets the running instance's node id
+class NodeIdLeaseTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private NodeIdLease runningInstance;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Test
+    void unsetNodeIdClaimsAFreeOne() {
+        NodeIdLease other = new NodeIdLease(-1, dataSourceProperties);
+        other.acquire();
+        try {
+            assertTrue(other.held());
+            assertNotEquals(runningInstance.nodeId(), other.nodeId());
+        } finally {
+            other.release();
+        }
+    }
+
+    @Test
+    void configuredNodeIdInUseFailsStartUp() {
+        NodeIdLease other = new NodeIdLease(runningInstance.nodeId(), dataSourceProperties);
+        assertThrows(IllegalStateException.class, other::acquire);
+    }
+
+    @Test
+    void releasedNodeIdCanBeClaimedAgain() {
+        NodeIdLease first = new NodeIdLease(-1, dataSourceProperties);
+        first.acquire();
+        long nodeId = first.nodeId();
+        first.release();
+
+        NodeIdLease second = new NodeIdLease(nodeId, dataSourceProperties);
+        second.acquire();
+        second.release();
+    }
+}
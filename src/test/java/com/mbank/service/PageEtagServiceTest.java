@@ -0,0 +1,43 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import com.mbank.model.BankAccount;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PageEtagServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private PageEtagService pageEtagService;
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Test
+    void dashboardEtagChangesWithBalanceAndProfile() {
+        BankAccount account = accountService.registerAccount("Etag Test", UUID.randomUUID() + "@etag.test", "secret");
+        int accountNumber = account.getAccountNumber();
+
+        String initial = pageEtagService.dashboardEtag(accountNumber);
+        assertEquals(initial, pageEtagService.dashboardEtag(accountNumber));
+
+        accountService.deposit(accountNumber, 10_00);
+        String afterDeposit = pageEtagService.dashboardEtag(accountNumber);
+        assertNotEquals(initial, afterDeposit);
+
+        account = accountService.getAccount(accountNumber).orElseThrow();
+        account.setAccountHolder("Etag Renamed");
+        accountService.updateAccount(account);
+        String afterRename = pageEtagService.dashboardEtag(accountNumber);
+        assertNotEquals(afterDeposit, afterRename);
+
+        account.setEmail(UUID.randomUUID() + "@etag.test");
+        accountService.updateAccount(account);
+        assertNotEquals(afterRename, pageEtagService.dashboardEtag(accountNumber));
+    }
+}
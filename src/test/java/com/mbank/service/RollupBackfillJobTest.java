@@ -0,0 +1,50 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Journal rows written behind the rollups' back are counted once the backfill has run
+class RollupBackfillJobTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private RollupBackfillJob backfillJob;
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void backfillCountsRowsMissingFromRollups() {
+        String email = UUID.randomUUID() + "@rollup.test";
+        int accountNumber = accountService.registerAccount("Rollup Test", email, "secret").getAccountNumber();
+        LocalDate lastWeek = LocalDate.now().minusDays(7);
+
+        // As if recorded before rollups were maintained
+        for (int i = 0; i < 3; i++) {
+            jdbc.update("INSERT INTO transactions (id, account_number, transaction_type, amount, fee, balance_after, " +
+                            "transaction_date, transaction_id) VALUES (nextval('transactions_seq'), ?, 'DEPOSIT', 250, 0, 0, ?, ?)",
+                    accountNumber, lastWeek.atTime(9, i), "BACKFILL" + UUID.randomUUID());
+        }
+
+        backfillJob.backfill();
+        backfillJob.backfill(); // idempotent
+
+        Long count = jdbc.queryForObject("SELECT tx_count FROM daily_account_rollups " +
+                "WHERE account_number = ? AND rollup_date = ? AND transaction_type = 'DEPOSIT'",
+                Long.class, accountNumber, lastWeek);
+        Long total = jdbc.queryForObject("SELECT amount_total FROM daily_account_rollups " +
+                "WHERE account_number = ? AND rollup_date = ? AND transaction_type = 'DEPOSIT'",
+                Long.class, accountNumber, lastWeek);
+        assertEquals(3, count);
+        assertEquals(750, total);
+    }
+}
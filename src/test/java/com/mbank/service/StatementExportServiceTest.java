@@ -0,0 +1,33 @@
+package com.mbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementExportServiceTest {
+
+    @Test
+    void plainValuesAreWrittenAsIs() {
+        assertEquals("Rent for May", StatementExportService.csv("Rent for May"));
+        assertEquals("", StatementExportService.csv(null));
+        assertEquals("", StatementExportService.csv(""));
+    }
+
+    @Test
+    void separatorsAndQuotesAreQuoted() {
+        assertEquals("\"a, b\"", StatementExportService.csv("a, b"));
+        assertEquals("\"say \"\"hi\"\"\"", StatementExportService.csv("say \"hi\""));
+    }
+
+    @Test
+    void formulaTriggersAreNeutralised() {
+        assertEquals("'=1+1", StatementExportService.csv("=1+1"));
+        assertEquals("'+27 82", StatementExportService.csv("+27 82"));
+        assertEquals("'-2", StatementExportService.csv("-2"));
+        assertEquals("'@SUM(A1)", StatementExportService.csv("@SUM(A1)"));
+        assertEquals("'\tx", StatementExportService.csv("\tx"));
+        assertEquals("\"'\rx\"", StatementExportService.csv("\rx"));
+        assertEquals("\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\"",
+                StatementExportService.csv("=HYPERLINK(\"http://x\",\"y\")"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.mbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 250_000;
+
+    @Test
+    void idsAreUniqueAcrossThreadsAndIncreasingWithinEach() throws Exception {
+        TransactionIdGenerator generator = new TransactionIdGenerator(7);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Callable<long[]> worker = () -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    start.await();
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextLong();
+                    }
+                    return ids;
+                };
+                results.add(pool.submit(worker));
+            }
+
+            long started = System.nanoTime();
+            start.countDown();
+            long[] all = new long[THREADS * IDS_PER_THREAD];
+            int offset = 0;
+            for (Future<long[]> result : results) {
+                long[] ids = result.get();
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "IDs must only increase within a thread");
+                }
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+            long elapsedNanos = System.nanoTime() - started;
+
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "Duplicate transaction ID " + all[i]);
+            }
+            System.out.printf("Generated %d unique IDs on %d threads at %.1f million/s%n",
+                    all.length, THREADS, all.length / (elapsedNanos / 1e9) / 1e6);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void clockRegressionKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(TransactionIdGenerator.EPOCH + 10_000);
+        TransactionIdGenerator generator = new TransactionIdGenerator(3, clock::get);
+
+        long beforeRegression = generator.nextLong();
+        clock.addAndGet(-5_000); // wall clock steps back five seconds
+        long afterRegression = generator.nextLong();
+        long later = generator.nextLong();
+
+        assertTrue(afterRegression > beforeRegression);
+        assertTrue(later > afterRegression);
+
+        clock.addAndGet(10_000); // and catches up again
+        assertTrue(generator.nextLong() > later);
+    }
+
+    @Test
+    void exhaustedSequenceMovesToTheNextMillisecond() {
+        AtomicLong clock = new AtomicLong(TransactionIdGenerator.EPOCH + 10_000);
+        TransactionIdGenerator generator = new TransactionIdGenerator(3, clock::get);
+
+        long previous = generator.nextLong();
+        for (int i = 0; i < 3 * (TransactionIdGenerator.SEQUENCE_MASK + 1); i++) {
+            long next = generator.nextLong();
+            assertTrue(next > previous);
+            assertEquals(3, (next >>> TransactionIdGenerator.SEQUENCE_BITS) & TransactionIdGenerator.MAX_NODE,
+                    "Node id bits must survive sequence overflow");
+            previous = next;
+        }
+    }
+
+    @Test
+    void nodeIdSeparatesGenerators() {
+        AtomicLong clock = new AtomicLong(TransactionIdGenerator.EPOCH + 10_000);
+        TransactionIdGenerator node1 = new TransactionIdGenerator(1, clock::get);
+        TransactionIdGenerator node2 = new TransactionIdGenerator(2, clock::get);
+
+        assertTrue(node1.nextLong() != node2.nextLong());
+        assertTrue(node1.nextId("DEP").startsWith("DEP"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.mbank.service;
+
+import com.mbank.PostgresIntegrationTest;
+import com.mbank.model.Transaction;
+import com.mbank.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Opposite-direction transfers between the same accounts at once: ordered row locks must keep
+// them from deadlocking, and no money may appear or vanish apart from fees
+class TransferDeadlockTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 64;
+    private static final int TRANSFERS_PER_THREAD = 25;
+    private static final int ACCOUNTS = 4;
+    private static final long FLOAT = 20_000_00;
+
+    @Autowired
+    private BankAccountService accountService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void oppositeTransfersNeitherDeadlockNorLoseMoney() throws Exception {
+        List<Integer> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            int accountNumber = newAccount();
+            accountService.deposit(accountNumber, FLOAT);
+            accounts.add(accountNumber);
+        }
+
+        AtomicLong fees = new AtomicLong();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger declined = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                // Thread t and thread t + 1 work the same pair of accounts in opposite directions
+                int pair = (t / 2) % (ACCOUNTS / 2);
+                boolean forward = t % 2 == 0;
+                Integer from = accounts.get(forward ? pair * 2 : pair * 2 + 1);
+                Integer to = accounts.get(forward ? pair * 2 + 1 : pair * 2);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        // Mostly fee-free amounts, with every fifth one over the fee threshold
+                        long amount = i % 5 == 0
+                                ? BankAccountService.TRANSFER_FEE_THRESHOLD + 1_00
+                                : ThreadLocalRandom.current().nextLong(1_00, 500_00);
+                        try {
+                            fees.addAndGet(accountService.transfer(from, to, amount, null).fee);
+                            completed.incrementAndGet();
+                        } catch (BankingException e) {
+                            assertEquals(BankingException.Reason.INSUFFICIENT_FUNDS, e.getReason());
+                            declined.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES); // rethrows deadlock or lock-timeout errors from the database
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, completed.get() + declined.get());
+        assertTrue(completed.get() > 0);
+
+        long total = 0;
+        for (Integer accountNumber : accounts) {
+            long balance = accountService.getBalance(accountNumber);
+            assertTrue(balance >= 0, "Account #" + accountNumber + " overdrawn");
+            assertEquals(journalBalance(accountNumber), balance, "Journal disagrees with balance of #" + accountNumber);
+            total += balance;
+        }
+        assertEquals(ACCOUNTS * FLOAT - fees.get(), total);
+    }
+
+    // A row moves the balance by its amount less its fee
+    private long journalBalance(Integer accountNumber) {
+        long balance = 0;
+        for (Transaction transaction : transactionRepository.findByAccountNumber(accountNumber)) {
+            balance += transaction.getAmount() - transaction.getFee();
+        }
+        return balance;
+    }
+
+    private int newAccount() {
+        String email = UUID.randomUUID() + "@transfer.test";
+        return accountService.registerAccount("Transfer Test", email, "secret").getAccountNumber();
+    }
+}